@@ -0,0 +1,116 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.jenkins.plugins.credentials.oauth;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import hudson.util.Secret;
+import java.io.Serializable;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * An OAuth 2.0 access token along with when it expires and the scopes it was obtained for, see
+ * {@link GoogleOAuth2Credentials#getGoogleAccessToken}. Unlike the bare {@link Secret} returned by
+ * {@link GoogleOAuth2Credentials#getAccessToken}, this tells consumers how long they may keep using
+ * the token before asking for a new one. Instances are immutable.
+ *
+ * <p>The expiration is kept on a {@link TokenClock}, and a serialized token carries its remaining
+ * lifetime, which the receiving side turns back into an expiration on its own clock.
+ */
+public final class AccessToken implements Serializable {
+    public AccessToken(Secret value, Instant expiration, ScopeSet scopes) {
+        this(value, checkNotNull(expiration).toEpochMilli(), scopes, TokenClock.system());
+    }
+
+    /**
+     * @param expiration The time at which the access token expires, on {@code clock}.
+     * @param clock The clock that decides when the access token expires.
+     */
+    AccessToken(Secret value, long expiration, ScopeSet scopes, TokenClock clock) {
+        this.value = checkNotNull(value);
+        this.expiration = expiration;
+        this.scopes = checkNotNull(scopes);
+        this.clock = checkNotNull(clock);
+    }
+
+    /** @return the access token itself. */
+    public Secret getValue() {
+        return value;
+    }
+
+    /** @return the time at which the access token expires. */
+    public Instant getExpiration() {
+        return Instant.ofEpochMilli(expiration);
+    }
+
+    /** @return the scopes the access token was obtained for. */
+    public ScopeSet getScopes() {
+        return scopes;
+    }
+
+    /**
+     * @param lifetime How long the caller still needs to use the access token.
+     * @return whether the access token expires before that.
+     */
+    public boolean expiresWithin(Duration lifetime) {
+        return getLifetimeMillis() <= lifetime.toMillis();
+    }
+
+    /** @return the number of milliseconds until the access token expires. */
+    long getLifetimeMillis() {
+        return clock.lifetimeMillis(expiration);
+    }
+
+    @Override
+    public String toString() {
+        // Never the token itself.
+        return "AccessToken[expiration=" + getExpiration() + ", scopes=" + scopes + "]";
+    }
+
+    private Object writeReplace() {
+        return new SerializedToken(value, getLifetimeMillis(), scopes);
+    }
+
+    /** The wire form of {@link AccessToken}. */
+    private static final class SerializedToken implements Serializable {
+        SerializedToken(Secret value, long lifetimeMillis, ScopeSet scopes) {
+            this.value = value;
+            this.lifetimeMillis = lifetimeMillis;
+            this.scopes = scopes;
+        }
+
+        private Object readResolve() {
+            TokenClock clock = TokenClock.system();
+            return new AccessToken(value, clock.expirationIn(lifetimeMillis), scopes, clock);
+        }
+
+        private final Secret value;
+        private final long lifetimeMillis;
+        private final ScopeSet scopes;
+
+        /** For {@link Serializable} */
+        private static final long serialVersionUID = 1L;
+    }
+
+    private final Secret value;
+    private final long expiration;
+    private final ScopeSet scopes;
+    private final transient TokenClock clock;
+
+    /** For {@link Serializable} */
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,421 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.jenkins.plugins.credentials.oauth;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.hash.Hashing;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import hudson.util.AtomicFileWriter;
+import hudson.util.Secret;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.model.Jenkins;
+import jenkins.util.SystemProperties;
+import jenkins.util.Timer;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONException;
+import net.sf.json.JSONObject;
+
+/**
+ * Caches the access tokens handed out by {@link GoogleRobotCredentials#getAccessToken}, per
+ * credential and {@link ScopeSet}.
+ *
+ * <p>Entries are keyed by credential instance, since updating a credential replaces the instance,
+ * which must not be served the tokens of its predecessor.
+ *
+ * <p>Optionally, when the {@code com.google.jenkins.plugins.credentials.oauth.AccessTokenCache.persistent}
+ * system property is set, the tokens are also written, encrypted with {@link Secret}, to {@code
+ * gauth/token-cache} under {@code JENKINS_HOME}. After a restart that file is read on the first
+ * cache miss, so resumed builds reuse tokens that are still valid instead of all fetching new ones
+ * at once. As credential instances do not survive a restart, persisted tokens are keyed by a digest
+ * of the credential type, id, key fingerprint (see {@link
+ * GoogleRobotCredentials#getTokenCacheFingerprint}) and scopes instead, and each one is handed out
+ * once, to the first credential asking for it.
+ *
+ * <p>The cache holds at most {@code
+ * com.google.jenkins.plugins.credentials.oauth.AccessTokenCache.maximumSize} tokens (10000 by
+ * default), so that controllers with many credentials, or callers asking for ever new combinations
+ * of scopes, do not grow it without bound. Past that, the tokens used least recently are evicted.
+ *
+ * <p>Failures to obtain a token are cached as well, for {@code
+ * com.google.jenkins.plugins.credentials.oauth.AccessTokenCache.failureSeconds} (30 by default), so
+ * that a revoked or malformed key fails fast instead of every use going through the whole failing
+ * exchange again.
+ *
+ * <p>How well both work is logged at {@link Level#FINE} every {@code
+ * com.google.jenkins.plugins.credentials.oauth.AccessTokenCache.statsMinutes} (60 by default), see
+ * {@link #describeStats}.
+ */
+final class AccessTokenCache {
+    private static final Logger LOGGER = Logger.getLogger(AccessTokenCache.class.getName());
+
+    /** Whether tokens are persisted to disk. */
+    private static final boolean PERSISTENT =
+            SystemProperties.getBoolean(AccessTokenCache.class.getName() + ".persistent");
+
+    /** The maximum number of tokens held in memory. */
+    private static final int MAXIMUM_SIZE =
+            SystemProperties.getInteger(AccessTokenCache.class.getName() + ".maximumSize", 10000);
+
+    /** How long a failure to obtain a token is remembered. */
+    private static final int FAILURE_SECONDS =
+            SystemProperties.getInteger(AccessTokenCache.class.getName() + ".failureSeconds", 30);
+
+    /** How often the statistics of the shared cache are logged. */
+    private static final int STATS_MINUTES =
+            SystemProperties.getInteger(AccessTokenCache.class.getName() + ".statsMinutes", 60);
+
+    /** @return the cache shared by all credentials. */
+    static AccessTokenCache get() {
+        return Holder.INSTANCE;
+    }
+
+    /** Defers creating the shared instance, and looking up {@code JENKINS_HOME}, to first use. */
+    private static final class Holder {
+        private static final AccessTokenCache INSTANCE = new AccessTokenCache(
+                PERSISTENT ? new File(new File(Jenkins.get().getRootDir(), "gauth"), "token-cache") : null);
+
+        static {
+            Timer.get().scheduleAtFixedRate(INSTANCE::logStats, STATS_MINUTES, STATS_MINUTES, TimeUnit.MINUTES);
+        }
+    }
+
+    @VisibleForTesting
+    AccessTokenCache(@CheckForNull File store) {
+        this(store, MAXIMUM_SIZE);
+    }
+
+    @VisibleForTesting
+    AccessTokenCache(@CheckForNull File store, long maximumSize) {
+        this.store = store;
+        this.tokens = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(TOKEN_LIFETIME_HOURS, TimeUnit.HOURS)
+                .recordStats()
+                .build();
+        this.failures = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(FAILURE_SECONDS, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Looks up a token for the given credential and scopes.
+     *
+     * @param minimumLifetime Tokens with less time than this left are not returned.
+     * @return the cached token, or null if there is none with enough time left.
+     */
+    @CheckForNull
+    AccessToken lookup(GoogleRobotCredentials credentials, ScopeSet scopes, Duration minimumLifetime) {
+        Key key = new Key(credentials, scopes);
+        AccessToken token = tokens.getIfPresent(key);
+        if (token == null && store != null) {
+            token = adopt(key);
+        }
+        if (token == null || token.expiresWithin(minimumLifetime)) {
+            if (token != null && token.getLifetimeMillis() <= 0) {
+                // Of no use to anyone any more, so do not wait for the cache to expire it.
+                tokens.asMap().remove(key, token);
+            }
+            return null;
+        }
+        return token;
+    }
+
+    /**
+     * Caches the given token for the given credential and scopes. The token is handed out as is, so
+     * a cache hit returns the same {@link Secret} instead of wrapping the token again.
+     */
+    void put(GoogleRobotCredentials credentials, ScopeSet scopes, AccessToken token) {
+        Key key = new Key(credentials, scopes);
+        tokens.put(key, checkNotNull(token));
+        failures.invalidate(key);
+        if (store != null) {
+            scheduleSave();
+        }
+    }
+
+    /**
+     * Looks up a recent failure to obtain a token for the given credential and scopes.
+     *
+     * @return the failure, or null if there was none recently.
+     */
+    @CheckForNull
+    GeneralSecurityException lookupFailure(GoogleRobotCredentials credentials, ScopeSet scopes) {
+        return failures.getIfPresent(new Key(credentials, scopes));
+    }
+
+    /** Remembers that a token could not be obtained for the given credential and scopes. */
+    void putFailure(GoogleRobotCredentials credentials, ScopeSet scopes, GeneralSecurityException failure) {
+        failures.put(new Key(credentials, scopes), checkNotNull(failure));
+        LOGGER.log(
+                Level.WARNING,
+                "Failed to obtain an access token for " + credentials.getId() + " with scopes " + scopes
+                        + ", failing fast for the next " + FAILURE_SECONDS + " seconds",
+                failure);
+    }
+
+    /** @return the hit, miss and eviction counts of the tokens held in memory. */
+    CacheStats getStats() {
+        return tokens.stats();
+    }
+
+    /**
+     * @return the statistics of the cached failures, where each hit is a use that failed fast instead
+     *     of trying again.
+     */
+    CacheStats getFailureStats() {
+        return failures.stats();
+    }
+
+    /**
+     * @return the hit, miss and eviction counts of both the tokens and the failures, for monitoring
+     *     how many token exchanges the cache saves.
+     */
+    String describeStats() {
+        CacheStats stats = getStats();
+        CacheStats failureStats = getFailureStats();
+        return String.format(
+                "Access token cache: %d hits, %d misses, %d evictions; failure cache: %d hits, %d misses",
+                stats.hitCount(),
+                stats.missCount(),
+                stats.evictionCount(),
+                failureStats.hitCount(),
+                failureStats.missCount());
+    }
+
+    private void logStats() {
+        LOGGER.log(Level.FINE, this::describeStats);
+    }
+
+    @VisibleForTesting
+    void clear() {
+        tokens.invalidateAll();
+        failures.invalidateAll();
+    }
+
+    /** Moves a token persisted before the last restart over to the given key, if there is one. */
+    @CheckForNull
+    private AccessToken adopt(Key key) {
+        String persistentKey = key.toPersistentKey();
+        if (persistentKey == null) {
+            return null;
+        }
+        RemoteTokenRefresher.Token persisted;
+        synchronized (this) {
+            persisted = getLoaded().remove(persistentKey);
+        }
+        if (persisted != null && persisted.getLifetimeSeconds() > 0) {
+            // Carry the remaining lifetime over to the clock of the credential.
+            TokenClock clock = key.credentials.getModule().getTokenClock();
+            AccessToken token = new AccessToken(
+                    Secret.fromString(persisted.getAccessToken()),
+                    clock.expirationIn(persisted.getLifetimeMillis()),
+                    key.scopes,
+                    clock);
+            tokens.put(key, token);
+            return token;
+        }
+        return null;
+    }
+
+    /** The tokens persisted before the last restart that were not handed out yet, read on first use. */
+    private Map<String, RemoteTokenRefresher.Token> getLoaded() {
+        if (loaded == null) {
+            loaded = load();
+        }
+        return loaded;
+    }
+
+    private Map<String, RemoteTokenRefresher.Token> load() {
+        Map<String, RemoteTokenRefresher.Token> result = new HashMap<>();
+        if (store == null || !store.isFile()) {
+            return result;
+        }
+        try {
+            Secret secret = Secret.decrypt(new String(Files.readAllBytes(store.toPath()), StandardCharsets.UTF_8));
+            if (secret == null) {
+                // Written with a different key, e.g. JENKINS_HOME was copied without its secrets.
+                return result;
+            }
+            // Persisted expirations are on the scale of the epoch, which the system clock is anchored to.
+            TokenClock clock = TokenClock.system();
+            long now = clock.currentTimeMillis();
+            JSONArray entries = JSONArray.fromObject(secret.getPlainText());
+            for (int i = 0; i < entries.size(); i++) {
+                JSONObject entry = entries.getJSONObject(i);
+                long expiration = entry.getLong(EXPIRATION);
+                if (expiration > now) {
+                    result.put(
+                            entry.getString(KEY),
+                            new RemoteTokenRefresher.Token(entry.getString(TOKEN), expiration, clock));
+                }
+            }
+        } catch (IOException | JSONException e) {
+            LOGGER.log(Level.WARNING, "Failed to read the access token cache from " + store, e);
+        }
+        return result;
+    }
+
+    private void scheduleSave() {
+        if (saveScheduled.compareAndSet(false, true)) {
+            // Coalesce the writes of tokens fetched around the same time.
+            Timer.get().schedule(this::save, SAVE_DELAY_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    @VisibleForTesting
+    void save() {
+        saveScheduled.set(false);
+        if (store == null) {
+            return;
+        }
+        long now = TokenClock.system().currentTimeMillis();
+        JSONArray entries = new JSONArray();
+        synchronized (this) {
+            // Keep what was persisted before the last restart and not asked for yet. Nothing may have
+            // been looked up since, e.g. only credentials that are not persisted were used, so read it now.
+            for (Map.Entry<String, RemoteTokenRefresher.Token> entry : getLoaded().entrySet()) {
+                RemoteTokenRefresher.Token token = entry.getValue();
+                addEntry(entries, entry.getKey(), token.getAccessToken(), token.getExpiration(), now);
+            }
+        }
+        for (Map.Entry<Key, AccessToken> entry : tokens.asMap().entrySet()) {
+            String persistentKey = entry.getKey().toPersistentKey();
+            if (persistentKey != null) {
+                AccessToken token = entry.getValue();
+                addEntry(
+                        entries,
+                        persistentKey,
+                        token.getValue().getPlainText(),
+                        now + token.getLifetimeMillis(),
+                        now);
+            }
+        }
+        try {
+            File parent = store.getParentFile();
+            if (!parent.isDirectory() && !parent.mkdirs()) {
+                throw new IOException("Failed to create " + parent);
+            }
+            AtomicFileWriter writer = new AtomicFileWriter(store.toPath(), StandardCharsets.UTF_8);
+            try {
+                writer.write(Secret.fromString(entries.toString()).getEncryptedValue());
+                writer.commit();
+            } finally {
+                writer.abort();
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to write the access token cache to " + store, e);
+        }
+    }
+
+    private static void addEntry(JSONArray entries, String key, String token, long expiration, long now) {
+        if (expiration > now) {
+            JSONObject json = new JSONObject();
+            json.put(KEY, key);
+            json.put(TOKEN, token);
+            json.put(EXPIRATION, expiration);
+            entries.add(json);
+        }
+    }
+
+    /** A credential instance and set of scopes. */
+    private static final class Key {
+        Key(GoogleRobotCredentials credentials, ScopeSet scopes) {
+            this.credentials = checkNotNull(credentials);
+            this.scopes = checkNotNull(scopes);
+        }
+
+        /** Identifies this key across restarts, or null if the credential does not support that. */
+        @CheckForNull
+        String toPersistentKey() {
+            String fingerprint = credentials.getTokenCacheFingerprint();
+            if (fingerprint == null) {
+                return null;
+            }
+            return Hashing.sha256()
+                    .hashString(
+                            credentials.getClass().getName() + '\n' + credentials.getId() + '\n' + fingerprint
+                                    + '\n' + scopes,
+                            StandardCharsets.UTF_8)
+                    .toString();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return credentials == other.credentials && scopes.equals(other.scopes);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(credentials) + scopes.hashCode();
+        }
+
+        private final GoogleRobotCredentials credentials;
+        private final ScopeSet scopes;
+    }
+
+    /** Where tokens are persisted, or null when they are only held in memory. */
+    @CheckForNull
+    private final File store;
+
+    /**
+     * Google access tokens are good for an hour after they were fetched, which is when they are
+     * written here, so entries drop out once their token has expired at the latest. Tokens that
+     * expire sooner are dropped by the first lookup that finds them expired.
+     */
+    static final long TOKEN_LIFETIME_HOURS = 1;
+
+    private final Cache<Key, AccessToken> tokens;
+
+    /** The recent failures to obtain a token, see {@link #lookupFailure}. */
+    private final Cache<Key, GeneralSecurityException> failures;
+
+    /** The tokens persisted before the last restart, still in their persisted form. Guarded by {@code this}. */
+    @CheckForNull
+    private Map<String, RemoteTokenRefresher.Token> loaded;
+
+    private final AtomicBoolean saveScheduled = new AtomicBoolean();
+
+    private static final long SAVE_DELAY_SECONDS = 10;
+
+    private static final String KEY = "key";
+    private static final String TOKEN = "token";
+    private static final String EXPIRATION = "expiration";
+}
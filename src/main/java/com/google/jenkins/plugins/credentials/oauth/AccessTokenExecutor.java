@@ -0,0 +1,55 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.jenkins.plugins.credentials.oauth;
+
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the token requests behind {@link GoogleOAuth2Credentials#getAccessTokenAsync}. These mostly
+ * wait on the network, so they get threads of their own rather than the common pool, which is
+ * sized for computation. Idle threads go away after a minute.
+ */
+final class AccessTokenExecutor {
+    private AccessTokenExecutor() {}
+
+    static Executor get() {
+        return EXECUTOR;
+    }
+
+    private static ThreadPoolExecutor createExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                MAX_THREADS,
+                MAX_THREADS,
+                IDLE_SECONDS,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                new NamingThreadFactory(new DaemonThreadFactory(), AccessTokenExecutor.class.getSimpleName()));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /** The most token requests running at the same time, further ones wait for a thread. */
+    private static final int MAX_THREADS = 8;
+
+    private static final long IDLE_SECONDS = 60;
+
+    private static final ThreadPoolExecutor EXECUTOR = createExecutor();
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.jenkins.plugins.credentials.oauth;
+
+import com.cloudbees.plugins.credentials.CredentialsProvider;
+import com.cloudbees.plugins.credentials.CredentialsStore;
+import com.cloudbees.plugins.credentials.SystemCredentialsProvider;
+import hudson.model.Item;
+import hudson.model.ItemGroup;
+import hudson.model.ModelObject;
+import hudson.model.Saveable;
+import hudson.model.User;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import jenkins.model.Jenkins;
+
+/** Finds the credentials stores of a whole controller. */
+final class CredentialsStores {
+    private CredentialsStores() {}
+
+    /**
+     * Collects the stores of Jenkins itself, of all item groups, such as folders, and of all users.
+     * Callers must be running as {@link hudson.security.ACL#SYSTEM2} to see all of them.
+     */
+    static Set<CredentialsStore> all() {
+        Jenkins jenkins = Jenkins.get();
+        Set<CredentialsStore> stores = Collections.newSetFromMap(new IdentityHashMap<>());
+        addStores(stores, jenkins);
+        for (Item item : jenkins.allItems()) {
+            if (item instanceof ItemGroup) {
+                addStores(stores, item);
+            }
+        }
+        for (User user : User.getAll()) {
+            addStores(stores, user);
+        }
+        return stores;
+    }
+
+    private static void addStores(Set<CredentialsStore> stores, ModelObject context) {
+        for (CredentialsStore store : CredentialsProvider.lookupStores(context)) {
+            stores.add(store);
+        }
+    }
+
+    /**
+     * @return what the given store persists itself through, so that several updates to it can be
+     *     saved at once within a {@link hudson.BulkChange}, or {@link Saveable#NOOP} if that is not
+     *     known for this kind of store.
+     */
+    static Saveable saveableOf(CredentialsStore store) {
+        if (store.getProvider() instanceof SystemCredentialsProvider.ProviderImpl) {
+            return SystemCredentialsProvider.getInstance();
+        }
+        // Folders and users save their stores along with themselves.
+        ModelObject context = store.getContext();
+        return context instanceof Saveable ? (Saveable) context : Saveable.NOOP;
+    }
+}
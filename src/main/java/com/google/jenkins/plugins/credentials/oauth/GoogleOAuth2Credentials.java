@@ -16,7 +16,11 @@
 package com.google.jenkins.plugins.credentials.oauth;
 
 import com.google.api.client.auth.oauth2.Credential;
+import hudson.util.Secret;
+import java.io.IOException;
 import java.security.GeneralSecurityException;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Google-specific username / access token combination.
@@ -33,4 +37,66 @@ public interface GoogleOAuth2Credentials extends StandardUsernameOAuth2Credentia
      * @throws GeneralSecurityException when the authentication fails
      */
     Credential getGoogleCredential(GoogleOAuth2ScopeRequirement requirement) throws GeneralSecurityException;
+
+    /**
+     * Fetches an access token for the set of OAuth 2.0 scopes required, along with when it expires,
+     * so that callers can keep using it until then instead of asking again for every request.
+     *
+     * <p>The default implementation obtains it from {@link #getGoogleCredential}, refreshing the
+     * credential if its token already expired.
+     *
+     * @param requirement The set of required OAuth 2.0 scopes
+     * @return the access token
+     * @throws GeneralSecurityException when no access token could be obtained
+     */
+    default AccessToken getGoogleAccessToken(GoogleOAuth2ScopeRequirement requirement)
+            throws GeneralSecurityException {
+        Credential credential = getGoogleCredential(requirement);
+        try {
+            Long expiresInSeconds = credential.getExpiresInSeconds();
+            if ((expiresInSeconds == null || expiresInSeconds <= 0) && !credential.refreshToken()) {
+                throw new GeneralSecurityException(Messages.GoogleOAuth2Credentials_NoAccessToken());
+            }
+        } catch (IOException e) {
+            throw new GeneralSecurityException(Messages.GoogleOAuth2Credentials_NoAccessToken(), e);
+        }
+        String accessToken = credential.getAccessToken();
+        Long expiration = credential.getExpirationTimeMilliseconds();
+        if (accessToken == null) {
+            throw new GeneralSecurityException(Messages.GoogleOAuth2Credentials_NoAccessToken());
+        }
+        return new AccessToken(
+                Secret.fromString(accessToken),
+                // Without a known expiration, the token must not be kept.
+                expiration == null ? Instant.now() : Instant.ofEpochMilli(expiration),
+                ScopeSet.of(requirement));
+    }
+
+    /**
+     * Fetches an access token for the set of OAuth 2.0 scopes required, without blocking the caller,
+     * so that it can go on with other work in the meantime.
+     *
+     * <p>The default implementation calls {@link #getAccessToken} on a shared pool of threads.
+     *
+     * @param requirement The set of required OAuth 2.0 scopes
+     * @return a future completing with the access token, or exceptionally with a {@link
+     *     GeneralSecurityException} if none could be obtained.
+     */
+    default CompletableFuture<Secret> getAccessTokenAsync(GoogleOAuth2ScopeRequirement requirement) {
+        CompletableFuture<Secret> future = new CompletableFuture<>();
+        AccessTokenExecutor.get().execute(() -> {
+            try {
+                Secret accessToken = getAccessToken(requirement);
+                if (accessToken == null) {
+                    future.completeExceptionally(
+                            new GeneralSecurityException(Messages.GoogleOAuth2Credentials_NoAccessToken()));
+                } else {
+                    future.complete(accessToken);
+                }
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
 }
@@ -16,4 +16,34 @@
 package com.google.jenkins.plugins.credentials.oauth;
 
 /** Used to type filter Google-specific {@link OAuth2ScopeRequirement}s. */
-public abstract class GoogleOAuth2ScopeRequirement extends OAuth2ScopeRequirement {}
+public abstract class GoogleOAuth2ScopeRequirement extends OAuth2ScopeRequirement {
+    /**
+     * Retrieves the canonical form of {@link #getScopes()}. Requirements for the same scopes yield
+     * equal sets regardless of order or duplicates, so this is what should be used when keying
+     * anything by requirement. Computed anew on each call, unless {@link #hasFixedScopes()}.
+     */
+    public ScopeSet getScopeSet() {
+        if (!hasFixedScopes()) {
+            return ScopeSet.of(getScopes());
+        }
+        ScopeSet scopeSet = this.scopeSet;
+        if (scopeSet == null) {
+            // Racing threads compute equal sets, any of them will do.
+            scopeSet = ScopeSet.of(getScopes());
+            this.scopeSet = scopeSet;
+        }
+        return scopeSet;
+    }
+
+    /**
+     * Whether {@link #getScopes()} always returns the same scopes for this requirement, so that
+     * {@link #getScopeSet()} need only compute its set once. Subclasses whose scopes are set at
+     * construction may override this to return true.
+     */
+    protected boolean hasFixedScopes() {
+        return false;
+    }
+
+    /** The result of {@link #getScopeSet()}, once computed for a requirement with fixed scopes. */
+    private transient volatile ScopeSet scopeSet;
+}
@@ -15,6 +15,7 @@
  */
 package com.google.jenkins.plugins.credentials.oauth;
 
+import com.cloudbees.plugins.credentials.domains.DomainRequirement;
 import hudson.Extension;
 import java.util.Collection;
 import org.kohsuke.stapler.DataBoundConstructor;
@@ -29,6 +30,33 @@ public class GoogleOAuth2ScopeSpecification extends OAuth2ScopeSpecification<Goo
         super(specifiedScopes);
     }
 
+    /** Retrieves the canonical form of {@link #getSpecifiedScopes()}. */
+    public ScopeSet getSpecifiedScopeSet() {
+        ScopeSet scopeSet = specifiedScopeSet;
+        if (scopeSet == null) {
+            scopeSet = ScopeSet.of(getSpecifiedScopes());
+            specifiedScopeSet = scopeSet;
+        }
+        return scopeSet;
+    }
+
+    private transient volatile ScopeSet specifiedScopeSet;
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Google requirements are matched on their canonical {@link ScopeSet}, so the specification
+     * matches whenever it is a superset of the required scopes.
+     */
+    @Override
+    public Result test(DomainRequirement requirement) {
+        if (!(requirement instanceof GoogleOAuth2ScopeRequirement)) {
+            return super.test(requirement);
+        }
+        ScopeSet required = ((GoogleOAuth2ScopeRequirement) requirement).getScopeSet();
+        return getSpecifiedScopeSet().containsAll(required) ? Result.POSITIVE : Result.NEGATIVE;
+    }
+
     /**
      * Denoted this class is a {@code DomainSpecification} plugin, in particular for {@link
      * OAuth2ScopeSpecification}
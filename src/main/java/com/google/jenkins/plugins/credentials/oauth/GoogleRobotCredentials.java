@@ -23,7 +23,11 @@ import com.cloudbees.plugins.credentials.CredentialsScope;
 import com.cloudbees.plugins.credentials.impl.BaseStandardCredentials;
 import com.google.api.client.auth.oauth2.Credential;
 import com.google.common.base.Strings;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.google.jenkins.plugins.credentials.domains.DomainRequirementProvider;
 import edu.umd.cs.findbugs.annotations.CheckForNull;
 import hudson.security.ACL;
@@ -32,8 +36,19 @@ import hudson.util.ListBoxModel;
 import hudson.util.Secret;
 import java.io.IOException;
 import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import jenkins.model.Jenkins;
 import org.kohsuke.stapler.QueryParameter;
 
@@ -104,30 +119,303 @@ public abstract class GoogleRobotCredentials extends BaseStandardCredentials imp
         return (AbstractGoogleRobotCredentialsDescriptor) Jenkins.get().getDescriptorOrDie(getClass());
     }
 
-    /** {@inheritDoc} */
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Tokens are cached per set of scopes, see {@link AccessTokenCache}, so asking repeatedly
+     * does not build a new {@link Credential} each time.
+     */
     @Override
     public Secret getAccessToken(GoogleOAuth2ScopeRequirement requirement) {
         try {
-            Credential credential = getGoogleCredential(requirement);
+            return getGoogleAccessToken(requirement).getValue();
+        } catch (GeneralSecurityException e) {
+            return null;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Tokens are cached per set of scopes, see {@link AccessTokenCache}, and handed out again
+     * while they have at least {@link #MINIMUM_DURATION_SECONDS} left.
+     */
+    @Override
+    public AccessToken getGoogleAccessToken(GoogleOAuth2ScopeRequirement requirement)
+            throws GeneralSecurityException {
+        return getGoogleAccessToken(requirement, MINIMUM_LIFETIME);
+    }
+
+    /**
+     * Like {@link #getGoogleAccessToken(GoogleOAuth2ScopeRequirement)}, for callers that need the token
+     * to last longer, such as the remote machines {@link RemotableGoogleCredentials} hand tokens to.
+     * They go through the same cache, fetches in flight and recent failures.
+     *
+     * @param minimumLifetime Cached tokens with less time than this left are not handed out, and
+     *     fetched ones are refreshed.
+     */
+    AccessToken getGoogleAccessToken(GoogleOAuth2ScopeRequirement requirement, Duration minimumLifetime)
+            throws GeneralSecurityException {
+        ScopeSet scopes = ScopeSet.of(requirement);
+        AccessToken cached = getCachedToken(scopes, minimumLifetime);
+        if (cached != null) {
+            return cached;
+        }
+        // Fetched on this thread, unless another one is already fetching for the same scopes.
+        return join(fetchShared(requirement, scopes, minimumLifetime, Runnable::run));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>A token cached for the set of scopes is returned at once, only fetching a new one is left to
+     * the shared pool of threads.
+     */
+    @Override
+    public CompletableFuture<Secret> getAccessTokenAsync(GoogleOAuth2ScopeRequirement requirement) {
+        ScopeSet scopes = ScopeSet.of(requirement);
+        AccessToken cached = getCachedToken(scopes, MINIMUM_LIFETIME);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached.getValue());
+        }
+        return fetchTokenAsync(requirement, scopes).thenApply(AccessToken::getValue);
+    }
+
+    /**
+     * Fetches access tokens for several sets of OAuth 2.0 scopes at once, e.g. for a build talking
+     * to several Google APIs. Requirements for the same scopes share a token, and the tokens that are
+     * not cached yet are fetched in parallel.
+     *
+     * @param requirements The sets of required OAuth 2.0 scopes
+     * @param combineScopes Whether to fetch a single token for all of the scopes instead, which then
+     *     serves every requirement. This saves token requests, at the price of tokens that grant more
+     *     than each use needs.
+     * @return the access token for each requirement, by {@link GoogleOAuth2ScopeRequirement#getScopeSet}.
+     * @throws GeneralSecurityException when any of the access tokens could not be obtained
+     */
+    public Map<ScopeSet, AccessToken> getGoogleAccessTokens(
+            Collection<? extends GoogleOAuth2ScopeRequirement> requirements, boolean combineScopes)
+            throws GeneralSecurityException {
+        Map<ScopeSet, GoogleOAuth2ScopeRequirement> distinct = new LinkedHashMap<>();
+        for (GoogleOAuth2ScopeRequirement requirement : requirements) {
+            distinct.putIfAbsent(ScopeSet.of(requirement), requirement);
+        }
+        Map<ScopeSet, AccessToken> tokens = new LinkedHashMap<>();
+        if (combineScopes && distinct.size() > 1) {
+            ScopeSet combined = null;
+            for (ScopeSet scopes : distinct.keySet()) {
+                combined = combined == null ? scopes : combined.union(scopes);
+            }
+            AccessToken token = getGoogleAccessToken(new CombinedScopeRequirement(combined));
+            for (ScopeSet scopes : distinct.keySet()) {
+                tokens.put(scopes, token);
+            }
+            return tokens;
+        }
+
+        Map<ScopeSet, CompletableFuture<AccessToken>> fetching = new LinkedHashMap<>();
+        for (Map.Entry<ScopeSet, GoogleOAuth2ScopeRequirement> entry : distinct.entrySet()) {
+            AccessToken cached = getCachedToken(entry.getKey(), MINIMUM_LIFETIME);
+            if (cached != null) {
+                tokens.put(entry.getKey(), cached);
+            } else {
+                fetching.put(entry.getKey(), fetchTokenAsync(entry.getValue(), entry.getKey()));
+            }
+        }
+        for (Map.Entry<ScopeSet, CompletableFuture<AccessToken>> entry : fetching.entrySet()) {
+            tokens.put(entry.getKey(), join(entry.getValue()));
+        }
+        return tokens;
+    }
+
+    /** Waits for a token being fetched, unwrapping the reason it could not be. */
+    private static AccessToken join(CompletableFuture<AccessToken> future) throws GeneralSecurityException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof GeneralSecurityException) {
+                throw (GeneralSecurityException) e.getCause();
+            }
+            throw new GeneralSecurityException(Messages.GoogleOAuth2Credentials_NoAccessToken(), e.getCause());
+        }
+    }
+
+    /** The union of the scopes of several requirements, see {@link #getGoogleAccessTokens}. */
+    private static final class CombinedScopeRequirement extends GoogleOAuth2ScopeRequirement {
+        CombinedScopeRequirement(ScopeSet scopes) {
+            this.scopes = scopes;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public Collection<String> getScopes() {
+            return scopes.asSet();
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public ScopeSet getScopeSet() {
+            return scopes;
+        }
+
+        private final ScopeSet scopes;
+
+        /** For {@link java.io.Serializable} */
+        private static final long serialVersionUID = 1L;
+    }
+
+    /** Runs {@link #fetchToken} on the shared pool of threads. */
+    private CompletableFuture<AccessToken> fetchTokenAsync(GoogleOAuth2ScopeRequirement requirement, ScopeSet scopes) {
+        return fetchShared(requirement, scopes, MINIMUM_LIFETIME, AccessTokenExecutor.get());
+    }
+
+    /**
+     * Runs {@link #fetchToken} on the given executor, unless a fetch for the same scopes is already in
+     * flight, in which case that one is shared. Fetches for different scopes, or different
+     * credentials, do not wait for each other. A shared fetch keeps the minimum lifetime it was started
+     * with, which fresh tokens exceed by far.
+     */
+    private CompletableFuture<AccessToken> fetchShared(
+            GoogleOAuth2ScopeRequirement requirement, ScopeSet scopes, Duration minimumLifetime, Executor executor) {
+        ConcurrentMap<ScopeSet, CompletableFuture<AccessToken>> fetches = getInFlightFetches();
+        CompletableFuture<AccessToken> mine = new CompletableFuture<>();
+        CompletableFuture<AccessToken> inFlight = fetches.putIfAbsent(scopes, mine);
+        if (inFlight != null) {
+            return inFlight;
+        }
+        executor.execute(() -> {
+            try {
+                mine.complete(fetchToken(requirement, scopes, minimumLifetime));
+            } catch (GeneralSecurityException | RuntimeException e) {
+                mine.completeExceptionally(e);
+            } finally {
+                fetches.remove(scopes, mine);
+            }
+        });
+        return mine;
+    }
+
+    private ConcurrentMap<ScopeSet, CompletableFuture<AccessToken>> getInFlightFetches() {
+        ConcurrentMap<ScopeSet, CompletableFuture<AccessToken>> fetches = inFlightFetches;
+        if (fetches == null) {
+            synchronized (this) {
+                fetches = inFlightFetches;
+                if (fetches == null) {
+                    // Transient, so this is null after deserialization as well.
+                    fetches = new ConcurrentHashMap<>();
+                    inFlightFetches = fetches;
+                }
+            }
+        }
+        return fetches;
+    }
+
+    /** The token fetches in flight, by set of scopes, see {@link #fetchShared}. */
+    private transient volatile ConcurrentMap<ScopeSet, CompletableFuture<AccessToken>> inFlightFetches;
+
+    /** @return the access token cached for the given scopes, or null if there is none. */
+    @CheckForNull
+    private AccessToken getCachedToken(ScopeSet scopes, Duration minimumLifetime) {
+        AccessTokenCache cache = getAccessTokenCache();
+        if (cache == null) {
+            return null;
+        }
+        return cache.lookup(this, scopes, minimumLifetime);
+    }
+
+    /**
+     * Obtains an access token through {@link #requestToken}, unless that recently failed for the same
+     * scopes, in which case the failure is reported again right away.
+     */
+    private AccessToken fetchToken(GoogleOAuth2ScopeRequirement requirement, ScopeSet scopes, Duration minimumLifetime)
+            throws GeneralSecurityException {
+        AccessTokenCache cache = getAccessTokenCache();
+        GeneralSecurityException failure = cache == null ? null : cache.lookupFailure(this, scopes);
+        if (failure != null) {
+            throw new GeneralSecurityException(Messages.GoogleOAuth2Credentials_NoAccessToken(), failure);
+        }
+        try {
+            return requestToken(requirement, scopes, minimumLifetime, cache);
+        } catch (GeneralSecurityException e) {
+            if (cache != null) {
+                cache.putFailure(this, scopes, e);
+            }
+            throw e;
+        }
+    }
 
-            Long rawExpiration = credential.getExpiresInSeconds();
-            if ((rawExpiration == null) || (rawExpiration < MINIMUM_DURATION_SECONDS)) {
+    /**
+     * Obtains an access token through {@link #getGoogleCredential}, refreshing it if it has less than
+     * the minimum lifetime left, and caches it.
+     */
+    private AccessToken requestToken(
+            GoogleOAuth2ScopeRequirement requirement,
+            ScopeSet scopes,
+            Duration minimumLifetime,
+            @CheckForNull AccessTokenCache cache)
+            throws GeneralSecurityException {
+        Credential credential = getGoogleCredential(requirement);
+
+        Long rawExpiration = credential.getExpiresInSeconds();
+        try {
+            if ((rawExpiration == null) || (rawExpiration < minimumLifetime.getSeconds())) {
                 // Access token expired or is near expiration.
                 if (!credential.refreshToken()) {
-                    return null;
+                    throw new GeneralSecurityException(Messages.GoogleOAuth2Credentials_NoAccessToken());
                 }
+                rawExpiration = credential.getExpiresInSeconds();
             }
+        } catch (IOException e) {
+            throw new GeneralSecurityException(Messages.GoogleOAuth2Credentials_NoAccessToken(), e);
+        }
 
-            return Secret.fromString(credential.getAccessToken());
-        } catch (IOException | GeneralSecurityException e) {
-            return null;
+        String accessToken = credential.getAccessToken();
+        if (accessToken == null) {
+            throw new GeneralSecurityException(Messages.GoogleOAuth2Credentials_NoAccessToken());
         }
+        TokenClock clock = getModule().getTokenClock();
+        if (rawExpiration == null) {
+            // Without a known expiration, the token must not be kept.
+            return new AccessToken(Secret.fromString(accessToken), clock.currentTimeMillis(), scopes, clock);
+        }
+        AccessToken token = new AccessToken(
+                Secret.fromString(accessToken),
+                clock.expirationIn(TimeUnit.SECONDS.toMillis(rawExpiration)),
+                scopes,
+                clock);
+        if (cache != null) {
+            // Cached as is, so that cache hits hand out this very Secret.
+            cache.put(this, scopes, token);
+        }
+        return token;
+    }
+
+    @CheckForNull
+    private AccessTokenCache getAccessTokenCache() {
+        // Remotable credentials already hold a single token, kept fresh on their own.
+        return this instanceof RemotableGoogleCredentials ? null : AccessTokenCache.get();
+    }
+
+    /**
+     * Identifies the key material behind this credential, so that the access tokens it obtained can
+     * be persisted across restarts, see {@link AccessTokenCache}. Two credentials with the same id but
+     * a different fingerprint never share tokens.
+     *
+     * @return a value that changes whenever the key material does, or null (the default) if the
+     *     tokens of this credential must not be persisted.
+     */
+    @CheckForNull
+    String getTokenCacheFingerprint() {
+        return null;
     }
 
     /* 3 minutes*/
     /** The minimum duration to allow for an access token before attempting to refresh it. */
     private static final Long MINIMUM_DURATION_SECONDS = 180L;
 
+    /** {@link #MINIMUM_DURATION_SECONDS}, as looked up in the {@link AccessTokenCache} on every call. */
+    private static final Duration MINIMUM_LIFETIME = Duration.ofSeconds(MINIMUM_DURATION_SECONDS);
+
     /**
      * A trivial tuple for wrapping the list box of matched credentials with the requirements that
      * were used to filter them.
@@ -174,7 +462,7 @@ public abstract class GoogleRobotCredentials extends BaseStandardCredentials imp
         }
 
         protected AbstractGoogleRobotCredentialsDescriptor(Class<? extends GoogleRobotCredentials> clazz) {
-            this(clazz, new GoogleRobotCredentialsModule());
+            this(clazz, GoogleRobotCredentialsModule.getDefault());
         }
 
         /** The module to use for instantiating depended upon resources */
@@ -239,15 +527,73 @@ public abstract class GoogleRobotCredentials extends BaseStandardCredentials imp
         return null;
     }
 
-    /** Retrieve a version of the credential that can be used on a remote machine. */
+    /**
+     * Retrieve a version of the credential that can be used on a remote machine.
+     *
+     * <p>The result is cached per set of scopes and handed out again for as long as its access token
+     * has more than the minimum lifetime required for remoting left, so that remoting the same
+     * credential to many agents or steps does not fetch a new token each time.
+     */
     public GoogleRobotCredentials forRemote(GoogleOAuth2ScopeRequirement requirement) throws GeneralSecurityException {
         if (this instanceof RemotableGoogleCredentials) {
             return this;
-        } else {
-            return new RemotableGoogleCredentials(this, requirement, getModule());
         }
+        ScopeSet scopes = checkNotNull(requirement).getScopeSet();
+        Cache<ScopeSet, RemotableGoogleCredentials> cache = getRemotableCache();
+
+        RemotableGoogleCredentials remotable = getRemotable(cache, scopes, requirement);
+        if (!remotable.hasMinimumLifetime()) {
+            // Only the caller that takes the stale one out creates its replacement, the others wait for it.
+            cache.asMap().remove(scopes, remotable);
+            remotable = getRemotable(cache, scopes, requirement);
+        }
+        return remotable;
+    }
+
+    private RemotableGoogleCredentials getRemotable(
+            Cache<ScopeSet, RemotableGoogleCredentials> cache,
+            ScopeSet scopes,
+            GoogleOAuth2ScopeRequirement requirement)
+            throws GeneralSecurityException {
+        try {
+            return cache.get(scopes, () -> new RemotableGoogleCredentials(this, requirement, getModule()));
+        } catch (ExecutionException e) {
+            Throwables.throwIfInstanceOf(e.getCause(), GeneralSecurityException.class);
+            throw new GeneralSecurityException(Messages.GoogleOAuth2Credentials_NoAccessToken(), e.getCause());
+        } catch (UncheckedExecutionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw e;
+        }
+    }
+
+    private Cache<ScopeSet, RemotableGoogleCredentials> getRemotableCache() {
+        Cache<ScopeSet, RemotableGoogleCredentials> cache = remotableCache;
+        if (cache == null) {
+            synchronized (this) {
+                cache = remotableCache;
+                if (cache == null) {
+                    // Transient, so this is null after deserialization as well.
+                    cache = CacheBuilder.newBuilder()
+                            .maximumSize(MAXIMUM_REMOTABLE_SCOPE_SETS)
+                            .expireAfterWrite(AccessTokenCache.TOKEN_LIFETIME_HOURS, TimeUnit.HOURS)
+                            .build();
+                    remotableCache = cache;
+                }
+            }
+        }
+        return cache;
     }
 
+    /**
+     * The {@link RemotableGoogleCredentials} handed out by {@link #forRemote}, by set of scopes. This
+     * is held by the credential instance, so updating the credential (which replaces the instance)
+     * also drops its cached remotable versions. Entries go once their access token has expired.
+     */
+    private transient volatile Cache<ScopeSet, RemotableGoogleCredentials> remotableCache;
+
+    /** The sets of scopes a credential keeps remotable versions for, least recently used ones go first. */
+    private static final long MAXIMUM_REMOTABLE_SCOPE_SETS = 100;
+
     /** Retrieve the project id for this credential */
     public String getProjectId() {
         return projectId;
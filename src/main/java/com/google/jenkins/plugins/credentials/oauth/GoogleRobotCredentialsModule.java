@@ -24,8 +24,17 @@ import java.io.Serializable;
 /**
  * An abstraction interface for instantiating the dependencies of the {@link
  * GoogleRobotCredentials}.
+ *
+ * <p>Modules of this very class hold no state, so all credentials share {@link #getDefault()}, and a
+ * deserialized one is replaced with it. Subclasses, e.g. for testing, may hold state and are left
+ * alone unless they intern themselves the same way.
  */
 public class GoogleRobotCredentialsModule implements Serializable {
+    /** @return the module shared by all credentials that use this class as is. */
+    public static GoogleRobotCredentialsModule getDefault() {
+        return DEFAULT;
+    }
+
     /** The HttpTransport to use for credential related requests. */
     public HttpTransport getHttpTransport() {
         return new NetHttpTransport();
@@ -36,6 +45,18 @@ public class GoogleRobotCredentialsModule implements Serializable {
         return new JacksonFactory();
     }
 
+    /** The clock that access token expirations are tracked with. */
+    public TokenClock getTokenClock() {
+        return TokenClock.system();
+    }
+
+    /** Interns modules of this very class, see {@link #getDefault()}. */
+    protected Object readResolve() {
+        return getClass() == GoogleRobotCredentialsModule.class ? DEFAULT : this;
+    }
+
+    private static final GoogleRobotCredentialsModule DEFAULT = new GoogleRobotCredentialsModule();
+
     /** For {@link Serializable} */
     private static final long serialVersionUID = 1L;
 }
@@ -22,7 +22,6 @@ import com.cloudbees.plugins.credentials.domains.DomainRequirement;
 import com.cloudbees.plugins.credentials.domains.DomainRestrictedCredentials;
 import com.google.api.client.googleapis.compute.ComputeCredential;
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.jenkins.plugins.util.ExecutorException;
@@ -32,7 +31,9 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import hudson.Extension;
 import java.io.IOException;
 import java.security.GeneralSecurityException;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import org.kohsuke.stapler.DataBoundConstructor;
 
 /**
@@ -136,17 +137,36 @@ public final class GoogleRobotMetadataCredentials extends GoogleRobotCredentials
     @Override
     public String getUsername() {
         try {
-            return getModule().getMetadataReader().readMetadata(IDENTITY_PATH);
+            Object email = readServiceAccount(getModule()).get(IDENTITY_KEY);
+            if (email instanceof String) {
+                return (String) email;
+            }
         } catch (ExecutorException | IOException e) {
             throw new IllegalStateException(Messages.GoogleRobotMetadataCredentials_DefaultIdentityError(), e);
         }
+        throw new IllegalStateException(Messages.GoogleRobotMetadataCredentials_DefaultIdentityError());
+    }
+
+    /**
+     * Reads everything known about the default service account, i.e. its identity and scopes, in a
+     * single request.
+     */
+    private static Map<String, Object> readServiceAccount(GoogleRobotMetadataCredentialsModule module)
+            throws IOException, ExecutorException {
+        return module.getMetadataCache().readMetadataTree(SERVICE_ACCOUNT_PATH);
     }
 
     /**
-     * The endpoint of the {@code METADATA_SERVER} for resolving the identity (email) of the service
-     * account.
+     * The directory of the {@code METADATA_SERVER} holding the identity (email) and scopes of the
+     * default service account.
      */
-    private static final String IDENTITY_PATH = "/instance/service-accounts/default/email";
+    private static final String SERVICE_ACCOUNT_PATH = "/instance/service-accounts/default/";
+
+    /** The key of the identity (email) of the service account in {@link #SERVICE_ACCOUNT_PATH}. */
+    private static final String IDENTITY_KEY = "email";
+
+    /** The key of the scopes of the service account in {@link #SERVICE_ACCOUNT_PATH}. */
+    private static final String SCOPES_KEY = "scopes";
 
     /** {@inheritDoc} */
     @Override
@@ -180,7 +200,7 @@ public final class GoogleRobotMetadataCredentials extends GoogleRobotCredentials
                 return null;
             }
 
-            GoogleRobotMetadataCredentialsModule defaultModule = new GoogleRobotMetadataCredentialsModule();
+            GoogleRobotMetadataCredentialsModule defaultModule = GoogleRobotMetadataCredentialsModule.getDefault();
             if (defaultModule.getMetadataReader().hasMetadata()) {
                 // Otherwise only instantiate the metadata credential if we are on a
                 // machine with metadata.
@@ -219,7 +239,7 @@ public final class GoogleRobotMetadataCredentials extends GoogleRobotCredentials
         @Nullable
         public String defaultProject() {
             try {
-                return getModule().getMetadataReader().readMetadata(PROJECT_ID_PATH);
+                return getModule().getMetadataCache().readMetadata(PROJECT_ID_PATH);
             } catch (ExecutorException | IOException e) {
                 return null;
             }
@@ -233,23 +253,25 @@ public final class GoogleRobotMetadataCredentials extends GoogleRobotCredentials
          */
         public List<String> defaultScopes() {
             try {
-                String scopes = getModule().getMetadataReader().readMetadata(SCOPES_PATH);
-
-                return Lists.newArrayList(
-                        Splitter.on('\n').trimResults().omitEmptyStrings().split(scopes));
+                Object scopes = readServiceAccount(getModule()).get(SCOPES_KEY);
+                if (!(scopes instanceof Collection)) {
+                    return ImmutableList.of();
+                }
+                List<String> result = Lists.newArrayList();
+                for (Object scope : (Collection<?>) scopes) {
+                    result.add(scope.toString());
+                }
+                return result;
             } catch (ExecutorException | IOException e) {
                 return ImmutableList.of();
             }
         }
 
-        /** This is the metadata endpoint for retrieving the project-id. */
-        private static final String PROJECT_ID_PATH = "/project/project-id";
-
         /**
-         * This is the metadata endpoint for retrieving the set of oauth scopes to which the host
-         * instance is limited.
+         * This is the metadata endpoint for retrieving the project-id. Not read as part of a tree,
+         * as the project's directory also holds its attributes, which can be large.
          */
-        private static final String SCOPES_PATH = "/instance/service-accounts/default/scopes";
+        private static final String PROJECT_ID_PATH = "/project/project-id";
     }
 
     /** For {@link java.io.Serializable} */
@@ -22,11 +22,50 @@ import com.google.jenkins.plugins.util.MetadataReader;
  * GoogleRobotMetadataCredentials}.
  */
 public class GoogleRobotMetadataCredentialsModule extends GoogleRobotCredentialsModule {
-    /** Retrieve a MetadataReader for accessing stuff encoded in the instance metadata. */
+    /**
+     * @return the module shared by all metadata credentials that use this class as is, and with it
+     *     the cache of the metadata they read.
+     */
+    public static GoogleRobotMetadataCredentialsModule getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Retrieve a MetadataReader for accessing stuff encoded in the instance metadata. The default
+     * reader is shared, so that its connections to the metadata server are reused.
+     */
     public MetadataReader getMetadataReader() {
-        return new MetadataReader.Default();
+        return DefaultReader.READER;
+    }
+
+    /**
+     * The cache of the values read through {@link #getMetadataReader()}, see {@link MetadataCache}.
+     * Modules using the default reader share its cache, so that each value is watched only once.
+     */
+    synchronized MetadataCache getMetadataCache() {
+        if (metadataCache == null) {
+            MetadataReader reader = getMetadataReader();
+            metadataCache = reader == DefaultReader.READER ? DefaultReader.CACHE : new MetadataCache(reader);
+        }
+        return metadataCache;
+    }
+
+    /** Created on first use, many modules never read metadata. */
+    private static final class DefaultReader {
+        static final MetadataReader READER = new MetadataReader.Default();
+        static final MetadataCache CACHE = new MetadataCache(READER);
+    }
+
+    /** Interns modules of this very class, see {@link #getDefault()}. */
+    @Override
+    protected Object readResolve() {
+        return getClass() == GoogleRobotMetadataCredentialsModule.class ? DEFAULT : this;
     }
 
+    private static final GoogleRobotMetadataCredentialsModule DEFAULT = new GoogleRobotMetadataCredentialsModule();
+
+    private transient MetadataCache metadataCache;
+
     /** For {@link java.io.Serializable} */
     private static final long serialVersionUID = 1L;
 }
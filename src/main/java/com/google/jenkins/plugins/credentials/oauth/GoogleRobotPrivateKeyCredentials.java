@@ -54,6 +54,12 @@ public final class GoogleRobotPrivateKeyCredentials extends GoogleRobotCredentia
     @Deprecated
     private transient String p12File;
 
+    /**
+     * Whether {@link #secretsFile} and {@link #p12File} still have to be read, see {@link
+     * LegacyKeyMigration}.
+     */
+    private transient volatile boolean legacyKeyFilesPending;
+
     /**
      * Construct a set of service account credentials.
      *
@@ -115,17 +121,67 @@ public final class GoogleRobotPrivateKeyCredentials extends GoogleRobotCredentia
                     + "method sets defaults for null id and scope. Id defaults to getProjectId() and "
                     + "scope defaults to CredentialsScope.GLOBAL if null.")
     public Object readResolve() throws Exception {
-        if (serviceAccountConfig == null) {
-            String clientEmail = getClientEmailFromSecretsFileAndLogErrors();
-            serviceAccountConfig = new P12ServiceAccountConfig(clientEmail, null, p12File);
-        }
-        return new GoogleRobotPrivateKeyCredentials(
+        GoogleRobotPrivateKeyCredentials resolved = new GoogleRobotPrivateKeyCredentials(
                 getScope() == null ? CredentialsScope.GLOBAL : getScope(),
                 getId() == null ? getProjectId() : getId(),
                 getProjectId(),
                 getDescription(),
                 serviceAccountConfig,
                 getModule());
+        if (serviceAccountConfig == null) {
+            // The legacy key files are read on first use.
+            resolved.secretsFile = secretsFile;
+            resolved.p12File = p12File;
+            resolved.legacyKeyFilesPending = true;
+            LegacyKeyMigration.schedule(resolved, resolved::migrateLegacyKeyFiles);
+        }
+        return resolved;
+    }
+
+    private Object writeReplace() {
+        // The paths are not persisted, so they must be replaced with the keys before saving.
+        migrateLegacyKeyFiles();
+        LegacyKeyMigration.saved(this);
+        return this;
+    }
+
+    /** @return whether this credential or its configuration were loaded in a legacy form and not saved since. */
+    boolean hasUnsavedLegacyKeys() {
+        // Uses the field, the configuration of a credential still to be migrated is null anyway.
+        return LegacyKeyMigration.isUnsaved(this)
+                || (serviceAccountConfig != null && LegacyKeyMigration.isUnsaved(serviceAccountConfig));
+    }
+
+    /** Reads any legacy key files this credential or its configuration still reference. */
+    void migrateLegacyKeys() {
+        ServiceAccountConfig serviceAccountConfig = getServiceAccountConfig();
+        if (serviceAccountConfig != null) {
+            serviceAccountConfig.migrateLegacyKeyFile();
+        }
+    }
+
+    /** Records that this credential was saved in its migrated form. */
+    void legacyKeysSaved() {
+        LegacyKeyMigration.saved(this);
+        if (serviceAccountConfig != null) {
+            LegacyKeyMigration.saved(serviceAccountConfig);
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private void migrateLegacyKeyFiles() {
+        if (!legacyKeyFilesPending) {
+            return;
+        }
+        synchronized (this) {
+            if (legacyKeyFilesPending) {
+                serviceAccountConfig = LegacyKeyMigration.asSystem(
+                        () -> new P12ServiceAccountConfig(getClientEmailFromSecretsFileAndLogErrors(), null, p12File));
+                secretsFile = null;
+                p12File = null;
+                legacyKeyFilesPending = false;
+            }
+        }
     }
 
     private String getClientEmailFromSecretsFileAndLogErrors() {
@@ -199,6 +255,7 @@ public final class GoogleRobotPrivateKeyCredentials extends GoogleRobotCredentia
     @NonNull
     @Override
     public String getUsername() throws KeyTypeNotSetException, AccountIdNotSetException {
+        ServiceAccountConfig serviceAccountConfig = getServiceAccountConfig();
         if (serviceAccountConfig == null) {
             throw new KeyTypeNotSetException();
         }
@@ -222,6 +279,7 @@ public final class GoogleRobotPrivateKeyCredentials extends GoogleRobotCredentia
     @Override
     public GoogleCredential getGoogleCredential(GoogleOAuth2ScopeRequirement requirement)
             throws KeyTypeNotSetException, AccountIdNotSetException, PrivateKeyNotSetException {
+        ServiceAccountConfig serviceAccountConfig = getServiceAccountConfig();
         if (serviceAccountConfig == null) {
             throw new KeyTypeNotSetException();
         }
@@ -241,14 +299,23 @@ public final class GoogleRobotPrivateKeyCredentials extends GoogleRobotCredentia
     }
 
     public ServiceAccountConfig getServiceAccountConfig() {
+        migrateLegacyKeyFiles();
         return serviceAccountConfig;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    @CheckForNull
+    String getTokenCacheFingerprint() {
+        ServiceAccountConfig serviceAccountConfig = getServiceAccountConfig();
+        return serviceAccountConfig == null ? null : serviceAccountConfig.getKeyFingerprint();
+    }
+
     /** Descriptor for our unlimited service account extension. */
     @Extension
     public static class Descriptor extends AbstractGoogleRobotCredentialsDescriptor {
         public Descriptor() {
-            this(new GoogleRobotCredentialsModule());
+            this(GoogleRobotCredentialsModule.getDefault());
         }
 
         @VisibleForTesting
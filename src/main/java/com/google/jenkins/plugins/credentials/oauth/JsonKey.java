@@ -17,13 +17,17 @@ package com.google.jenkins.plugins.credentials.oauth;
 
 import com.google.api.client.json.GenericJson;
 import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.JsonParser;
+import com.google.api.client.json.JsonToken;
 import com.google.api.client.util.Key;
 import com.google.common.base.Charsets;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import hudson.util.Secret;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.SequenceInputStream;
+import java.util.Arrays;
 import org.apache.commons.io.IOUtils;
 
 /**
@@ -43,22 +47,84 @@ import org.apache.commons.io.IOUtils;
  */
 @SuppressFBWarnings("EQ_DOESNT_OVERRIDE_EQUALS")
 public final class JsonKey extends GenericJson {
-    @Key("client_email")
+    @Key(CLIENT_EMAIL)
     private String clientEmail;
 
-    @Key("private_key")
+    @Key(PRIVATE_KEY)
     private String privateKey;
 
+    /**
+     * Reads a JSON key, either as downloaded or encrypted as a {@link Secret}.
+     *
+     * <p>Plain JSON, by far the common case, is recognized from its first few bytes and parsed as it
+     * is read, rather than first being copied into a String and put through a decryption attempt.
+     */
     public static JsonKey load(JsonFactory jsonFactory, InputStream inputStream) throws IOException {
-        InputStreamReader reader = new InputStreamReader(inputStream, Charsets.UTF_8);
+        byte[] prefix = new byte[PREFIX_LENGTH];
         try {
-            Secret decoded = Secret.fromString(IOUtils.toString(reader));
-            return jsonFactory.fromString(decoded.getPlainText(), JsonKey.class);
+            int length = IOUtils.read(inputStream, prefix);
+            int start = startOfContent(prefix, length);
+            InputStream content =
+                    new SequenceInputStream(new ByteArrayInputStream(prefix, start, length - start), inputStream);
+            if (isPlainJson(prefix, start, length)) {
+                return parse(jsonFactory.createJsonParser(content, Charsets.UTF_8));
+            }
+            Secret decoded = Secret.fromString(IOUtils.toString(content, Charsets.UTF_8));
+            return parse(jsonFactory.createJsonParser(decoded.getPlainText()));
         } finally {
+            Arrays.fill(prefix, (byte) 0);
             inputStream.close();
         }
     }
 
+    /**
+     * Whether the content starts like a JSON object, i.e. <code>{</code> followed by <code>"</code>
+     * or <code>}</code>. The encrypted form of a {@link Secret} is either Base64, or Base64 within
+     * braces.
+     */
+    private static boolean isPlainJson(byte[] prefix, int start, int length) {
+        int i = skipWhitespace(prefix, start, length);
+        if (i >= length || prefix[i] != '{') {
+            return false;
+        }
+        i = skipWhitespace(prefix, i + 1, length);
+        return i < length && (prefix[i] == '"' || prefix[i] == '}');
+    }
+
+    /** Skips a UTF-8 byte order mark. */
+    private static int startOfContent(byte[] prefix, int length) {
+        if (length >= 3 && prefix[0] == (byte) 0xEF && prefix[1] == (byte) 0xBB && prefix[2] == (byte) 0xBF) {
+            return 3;
+        }
+        return 0;
+    }
+
+    private static int skipWhitespace(byte[] prefix, int start, int length) {
+        int i = start;
+        while (i < length && Character.isWhitespace(prefix[i])) {
+            i++;
+        }
+        return i;
+    }
+
+    /** Reads a JSON key, keeping the fields other than the two needed as unknown keys. */
+    private static JsonKey parse(JsonParser parser) throws IOException {
+        try {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("A JSON key must be a JSON object");
+            }
+            return parser.parse(JsonKey.class);
+        } finally {
+            parser.close();
+        }
+    }
+
+    /** Enough to recognize plain JSON after a byte order mark and some whitespace. */
+    private static final int PREFIX_LENGTH = 64;
+
+    private static final String CLIENT_EMAIL = "client_email";
+    private static final String PRIVATE_KEY = "private_key";
+
     public String getClientEmail() {
         return clientEmail;
     }
@@ -25,11 +25,9 @@ import hudson.Extension;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.StringReader;
-import java.security.KeyFactory;
-import java.security.NoSuchAlgorithmException;
+import java.security.GeneralSecurityException;
 import java.security.PrivateKey;
-import java.security.spec.InvalidKeySpecException;
-import java.security.spec.PKCS8EncodedKeySpec;
+import java.util.Arrays;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import jenkins.model.Jenkins;
@@ -68,11 +66,23 @@ public class JsonServiceAccountConfig extends ServiceAccountConfig {
     @CheckForNull
     private SecretBytes secretJsonKey;
 
+    /**
+     * The {@code client_email} of {@link #secretJsonKey}, read out of the key when it is set. It is
+     * not secret, so it is persisted in plain, and listing credentials does not have to decrypt their
+     * keys. Null for configurations saved before this field existed, until first asked for.
+     */
+    @CheckForNull
+    private String accountId;
+
     @Deprecated // for migration purpose
     @CheckForNull
     private transient String jsonKeyFile;
 
-    private transient JsonKey jsonKey;
+    /** The decoded form of {@link #secretJsonKey}, so that it is decrypted once per key. */
+    private transient volatile ParsedJsonKey parsedJsonKey;
+
+    /** Whether {@link #jsonKeyFile} still has to be read, see {@link LegacyKeyMigration}. */
+    private transient volatile boolean legacyKeyFilePending;
 
     /** @since 0.8 */
     @DataBoundConstructor
@@ -104,6 +114,8 @@ public class JsonServiceAccountConfig extends ServiceAccountConfig {
                 if (jsonKey.getClientEmail() != null && jsonKey.getPrivateKey() != null) {
                     this.filename = extractFilename(jsonKeyFileUpload.getName());
                     this.secretJsonKey = SecretBytes.fromBytes(jsonKeyFileUpload.get());
+                    this.parsedJsonKey = new ParsedJsonKey(secretJsonKey, jsonKey);
+                    this.accountId = jsonKey.getClientEmail();
                 }
             } catch (IOException e) {
                 LOGGER.log(Level.SEVERE, "Failed to read JSON key from file", e);
@@ -123,8 +135,9 @@ public class JsonServiceAccountConfig extends ServiceAccountConfig {
     /** @param secretJsonKey The JSON key file content. */
     @DataBoundSetter
     public void setSecretJsonKey(SecretBytes secretJsonKey) {
-        if (secretJsonKey != null && secretJsonKey.getPlainData().length > 0) {
+        if (!isEmpty(secretJsonKey)) {
             this.secretJsonKey = secretJsonKey;
+            this.accountId = getParsedJsonKey().clientEmail;
         }
     }
 
@@ -138,13 +151,37 @@ public class JsonServiceAccountConfig extends ServiceAccountConfig {
 
     @SuppressFBWarnings("RCN_REDUNDANT_NULLCHECK_OF_NONNULL_VALUE")
     private Object readResolve() {
-        if (secretJsonKey == null) {
-            // google-oauth-plugin < 0.7
-            return new JsonServiceAccountConfig(null, getJsonKeyFile());
+        if (secretJsonKey == null && jsonKeyFile != null) {
+            // google-oauth-plugin < 0.7, the key file is read on first use.
+            legacyKeyFilePending = true;
+            LegacyKeyMigration.schedule(this, this::migrateLegacyKeyFile);
         }
         return this;
     }
 
+    private Object writeReplace() {
+        // The path is not persisted, so it must be replaced with the key before saving.
+        migrateLegacyKeyFile();
+        LegacyKeyMigration.saved(this);
+        return this;
+    }
+
+    @Override
+    void migrateLegacyKeyFile() {
+        if (!legacyKeyFilePending) {
+            return;
+        }
+        synchronized (this) {
+            if (legacyKeyFilePending) {
+                String path = jsonKeyFile;
+                filename = extractFilename(path);
+                secretJsonKey = LegacyKeyMigration.asSystem(() -> getSecretBytesFromFile(path));
+                jsonKeyFile = null;
+                legacyKeyFilePending = false;
+            }
+        }
+    }
+
     @Override
     public DescriptorImpl getDescriptor() {
         return (DescriptorImpl) Jenkins.get().getDescriptorOrDie(JsonServiceAccountConfig.class);
@@ -156,17 +193,20 @@ public class JsonServiceAccountConfig extends ServiceAccountConfig {
      */
     @CheckForNull
     public String getFilename() {
+        migrateLegacyKeyFile();
         return filename;
     }
 
     @Restricted(DoNotUse.class) // UI: Required for stapler call of setter.
     @CheckForNull
     public SecretBytes getSecretJsonKey() {
+        migrateLegacyKeyFile();
         return secretJsonKey;
     }
 
     @Deprecated
     public String getJsonKeyFile() {
+        migrateLegacyKeyFile();
         return jsonKeyFile;
     }
 
@@ -181,6 +221,13 @@ public class JsonServiceAccountConfig extends ServiceAccountConfig {
         return null;
     }
 
+    @Override
+    @CheckForNull
+    String getKeyFingerprint() {
+        migrateLegacyKeyFile();
+        return fingerprint(secretJsonKey);
+    }
+
     /**
      * In this context the service account id is represented by the email address for that service
      * account, which should be contained in the JSON key.
@@ -189,11 +236,14 @@ public class JsonServiceAccountConfig extends ServiceAccountConfig {
      */
     @Override
     public String getAccountId() {
-        JsonKey jsonKey = getJsonKey();
-        if (jsonKey != null) {
-            return jsonKey.getClientEmail();
+        migrateLegacyKeyFile();
+        String id = accountId;
+        if (id == null && secretJsonKey != null) {
+            // Saved before the account id was, so read it out of the key once.
+            id = getParsedJsonKey().clientEmail;
+            accountId = id;
         }
-        return null;
+        return id;
     }
 
     /**
@@ -202,35 +252,85 @@ public class JsonServiceAccountConfig extends ServiceAccountConfig {
      */
     @Override
     public PrivateKey getPrivateKey() {
-        JsonKey jsonKey = getJsonKey();
-        if (jsonKey != null) {
-            String privateKey = jsonKey.getPrivateKey();
-            if (privateKey != null && !privateKey.isEmpty()) {
-                PemReader pemReader = new PemReader(new StringReader(privateKey));
-                try {
-                    PemReader.Section section = pemReader.readNextSection();
-                    if (section != null) {
-                        PKCS8EncodedKeySpec keySpec = new PKCS8EncodedKeySpec(section.getBase64DecodedBytes());
-                        return KeyFactory.getInstance("RSA").generatePrivate(keySpec);
-                    } else {
-                        LOGGER.severe("The provided private key is malformed.");
-                    }
-                } catch (IOException | InvalidKeySpecException | NoSuchAlgorithmException e) {
-                    LOGGER.log(Level.SEVERE, "Failed to read private key", e);
-                }
+        KeyMaterial keyMaterial = getParsedJsonKey().keyMaterial;
+        if (keyMaterial != null) {
+            try {
+                return keyMaterial.getPrivateKey();
+            } catch (GeneralSecurityException e) {
+                LOGGER.log(Level.SEVERE, "Failed to read private key", e);
             }
         }
         return null;
     }
 
-    private JsonKey getJsonKey() {
-        if (jsonKey == null && secretJsonKey != null && secretJsonKey.getPlainData().length > 0) {
-            try {
-                jsonKey = JsonKey.load(new JacksonFactory(), new ByteArrayInputStream(secretJsonKey.getPlainData()));
-            } catch (IOException ignored) {
+    private ParsedJsonKey getParsedJsonKey() {
+        migrateLegacyKeyFile();
+        SecretBytes source = secretJsonKey;
+        ParsedJsonKey parsed = parsedJsonKey;
+        if (parsed == null || parsed.source != source) {
+            // First use, or the key was replaced since.
+            parsed = new ParsedJsonKey(source, parse(source));
+            parsedJsonKey = parsed;
+        }
+        return parsed;
+    }
+
+    @CheckForNull
+    private static JsonKey parse(@CheckForNull SecretBytes source) {
+        if (source == null) {
+            return null;
+        }
+        byte[] plainData = source.getPlainData();
+        try {
+            if (plainData.length == 0) {
+                return null;
+            }
+            return JsonKey.load(new JacksonFactory(), new ByteArrayInputStream(plainData));
+        } catch (IOException e) {
+            return null;
+        } finally {
+            Arrays.fill(plainData, (byte) 0);
+        }
+    }
+
+    @CheckForNull
+    private static KeyMaterial decodePrivateKey(@CheckForNull String privateKey) {
+        if (privateKey == null || privateKey.isEmpty()) {
+            return null;
+        }
+        PemReader pemReader = new PemReader(new StringReader(privateKey));
+        try {
+            PemReader.Section section = pemReader.readNextSection();
+            if (section != null) {
+                return KeyMaterial.fromPkcs8(section.getBase64DecodedBytes());
+            } else {
+                LOGGER.severe("The provided private key is malformed.");
             }
+        } catch (IOException | GeneralSecurityException e) {
+            LOGGER.log(Level.SEVERE, "Failed to read private key", e);
         }
-        return jsonKey;
+        return null;
+    }
+
+    /**
+     * What is used of a JSON key, along with the key it came from. The JSON key itself, and the PEM
+     * string of the private key within it, are dropped once decoded.
+     */
+    private static final class ParsedJsonKey {
+        ParsedJsonKey(@CheckForNull SecretBytes source, @CheckForNull JsonKey jsonKey) {
+            this.source = source;
+            this.clientEmail = jsonKey == null ? null : jsonKey.getClientEmail();
+            this.keyMaterial = jsonKey == null ? null : decodePrivateKey(jsonKey.getPrivateKey());
+        }
+
+        @CheckForNull
+        private final SecretBytes source;
+
+        @CheckForNull
+        private final String clientEmail;
+
+        @CheckForNull
+        private final KeyMaterial keyMaterial;
     }
 
     /** Descriptor for JSON service account authentication. */
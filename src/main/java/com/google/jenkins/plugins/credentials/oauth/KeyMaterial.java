@@ -0,0 +1,129 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.jenkins.plugins.credentials.oauth;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.lang.ref.Cleaner;
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.InvalidKeyException;
+import java.security.KeyFactory;
+import java.security.PrivateKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.util.Arrays;
+
+/**
+ * Holds a decoded private key for a {@link ServiceAccountConfig}, so that the key file does not
+ * have to be decrypted and decoded again on every use.
+ *
+ * <p>The PKCS#8 encoding of the key is kept in a direct buffer, outside of the heap, and zeroed once
+ * this holder is no longer reachable. The {@link PrivateKey} itself is only softly cached, and
+ * rebuilt from that encoding when the cache was cleared. Every array holding key bytes on the way is
+ * zeroed as soon as it was used.
+ */
+final class KeyMaterial {
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private KeyMaterial(String algorithm, ByteBuffer encoded, PrivateKey privateKey) {
+        this.algorithm = algorithm;
+        this.encoded = encoded;
+        this.privateKey = new SoftReference<>(privateKey);
+        CLEANER.register(this, new Zeroer(encoded));
+    }
+
+    /**
+     * Decodes an RSA private key.
+     *
+     * @param pkcs8 The PKCS#8 encoding of the key, zeroed by this method.
+     * @return the holder of the decoded key.
+     */
+    static KeyMaterial fromPkcs8(byte[] pkcs8) throws GeneralSecurityException {
+        try {
+            return store(KeyFactory.getInstance(RSA).generatePrivate(new PKCS8EncodedKeySpec(pkcs8)), pkcs8);
+        } finally {
+            Arrays.fill(pkcs8, (byte) 0);
+        }
+    }
+
+    /**
+     * Holds an already decoded private key, e.g. one read from a key store.
+     *
+     * @return the holder of the key.
+     * @throws GeneralSecurityException if the key has no PKCS#8 encoding.
+     */
+    static KeyMaterial of(PrivateKey privateKey) throws GeneralSecurityException {
+        if (!PKCS8.equals(checkNotNull(privateKey).getFormat())) {
+            throw new InvalidKeyException("Unsupported private key format " + privateKey.getFormat());
+        }
+        byte[] pkcs8 = privateKey.getEncoded();
+        try {
+            return store(privateKey, pkcs8);
+        } finally {
+            Arrays.fill(pkcs8, (byte) 0);
+        }
+    }
+
+    private static KeyMaterial store(PrivateKey privateKey, byte[] pkcs8) {
+        ByteBuffer encoded = ByteBuffer.allocateDirect(pkcs8.length);
+        encoded.put(pkcs8);
+        return new KeyMaterial(privateKey.getAlgorithm(), encoded, privateKey);
+    }
+
+    /** @return the private key, decoded again only if it was dropped from the cache. */
+    PrivateKey getPrivateKey() throws GeneralSecurityException {
+        PrivateKey key = privateKey.get();
+        if (key != null) {
+            return key;
+        }
+        byte[] pkcs8 = new byte[encoded.capacity()];
+        try {
+            // Absolute reads, so concurrent callers do not share a position.
+            for (int i = 0; i < pkcs8.length; i++) {
+                pkcs8[i] = encoded.get(i);
+            }
+            key = KeyFactory.getInstance(algorithm).generatePrivate(new PKCS8EncodedKeySpec(pkcs8));
+        } finally {
+            Arrays.fill(pkcs8, (byte) 0);
+        }
+        privateKey = new SoftReference<>(key);
+        return key;
+    }
+
+    /** Zeroes the encoded key, must not reference the {@link KeyMaterial} it cleans up after. */
+    private static final class Zeroer implements Runnable {
+        Zeroer(ByteBuffer encoded) {
+            this.encoded = encoded;
+        }
+
+        @Override
+        public void run() {
+            for (int i = 0; i < encoded.capacity(); i++) {
+                encoded.put(i, (byte) 0);
+            }
+        }
+
+        private final ByteBuffer encoded;
+    }
+
+    private static final String RSA = "RSA";
+    private static final String PKCS8 = "PKCS#8";
+
+    private final String algorithm;
+    private final ByteBuffer encoded;
+    private volatile SoftReference<PrivateKey> privateKey;
+}
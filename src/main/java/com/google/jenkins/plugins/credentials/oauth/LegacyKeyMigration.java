@@ -0,0 +1,113 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.jenkins.plugins.credentials.oauth;
+
+import com.google.common.collect.MapMaker;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+import java.util.Collections;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.util.Timer;
+
+/**
+ * Credentials created with versions &lt; 0.7 referenced their keys by path instead of holding them
+ * as {@link com.cloudbees.plugins.credentials.SecretBytes}. Reading those files used to happen in
+ * {@code readResolve}, i.e. while credentials.xml was being parsed. Instead, the legacy objects now
+ * only remember the paths and read them on first use, and this class migrates all of them once in
+ * the background shortly after they were loaded, so that first use rarely has to wait on the disk.
+ *
+ * <p>The migrated keys only reach the disk once the credentials are saved, until then every restart
+ * loads the legacy form again. {@link LegacyKeyMigrationMonitor} lets administrators save all of
+ * them at once, so this class also tracks which loaded objects are still unsaved: the legacy objects
+ * report themselves {@link #saved} whenever they are written in their migrated form.
+ */
+final class LegacyKeyMigration {
+    private static final Logger LOGGER = Logger.getLogger(LegacyKeyMigration.class.getName());
+
+    private LegacyKeyMigration() {}
+
+    /**
+     * Queues a legacy object for migration in the background. The migration must be idempotent, as
+     * it also runs on first use if that comes earlier.
+     *
+     * @param legacy The object that was loaded in its legacy form.
+     * @param migration Reads the legacy key files of {@code legacy}.
+     */
+    static void schedule(Object legacy, Runnable migration) {
+        UNSAVED.add(legacy);
+        PENDING.add(migration);
+        if (SCHEDULED.compareAndSet(false, true)) {
+            Timer.get().schedule(LegacyKeyMigration::runPending, DELAY_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    private static void runPending() {
+        SCHEDULED.set(false);
+        Runnable migration;
+        while ((migration = PENDING.poll()) != null) {
+            try {
+                migration.run();
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Failed to migrate a legacy key file", e);
+            }
+        }
+    }
+
+    /** @return whether the given object was loaded in its legacy form and has not been saved since. */
+    static boolean isUnsaved(Object legacy) {
+        return UNSAVED.contains(legacy);
+    }
+
+    /** @return whether any object loaded in its legacy form has not been saved since. */
+    static boolean hasUnsaved() {
+        return !UNSAVED.isEmpty();
+    }
+
+    /** Records that the given object was saved in its migrated form. */
+    static void saved(Object legacy) {
+        UNSAVED.remove(legacy);
+    }
+
+    /**
+     * Reads legacy key material as the system. The paths come from the stored configuration, not the
+     * current user, and reading them used to happen during loading, which runs as the system too.
+     */
+    static <T> T asSystem(Supplier<T> reader) {
+        try (ACLContext ignored = ACL.as2(ACL.SYSTEM2)) {
+            return reader.get();
+        }
+    }
+
+    /** Leaves Jenkins some time to finish loading, the migrations are not urgent. */
+    private static final long DELAY_SECONDS = 5;
+
+    private static final Queue<Runnable> PENDING = new ConcurrentLinkedQueue<>();
+    private static final AtomicBoolean SCHEDULED = new AtomicBoolean();
+
+    /**
+     * The objects loaded in their legacy form that were not saved since. Weak, so that credentials
+     * that were replaced or deleted in the meantime drop out, and by identity, as an equal object
+     * loaded or saved elsewhere says nothing about this one.
+     */
+    private static final Set<Object> UNSAVED = Collections.newSetFromMap(new MapMaker().weakKeys().makeMap());
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.jenkins.plugins.credentials.oauth;
+
+import com.cloudbees.plugins.credentials.Credentials;
+import com.cloudbees.plugins.credentials.CredentialsStore;
+import com.cloudbees.plugins.credentials.domains.Domain;
+import com.google.common.annotations.VisibleForTesting;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import hudson.BulkChange;
+import hudson.Extension;
+import hudson.model.AdministrativeMonitor;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.model.Jenkins;
+import org.kohsuke.stapler.HttpResponse;
+import org.kohsuke.stapler.HttpResponses;
+import org.kohsuke.stapler.interceptor.RequirePOST;
+
+/**
+ * Shown while credentials created with versions &lt; 0.7, which reference their keys by path, are
+ * loaded and were not saved since, see {@link LegacyKeyMigration}. Lets administrators migrate all
+ * of them to {@link com.cloudbees.plugins.credentials.SecretBytes} at once: the key files are read
+ * in parallel and the migrated credentials are saved back to their stores, with a single save per
+ * store, so that later restarts no longer load the legacy form. The stores of Jenkins, of folders
+ * and of users are all migrated.
+ */
+@Extension
+public final class LegacyKeyMigrationMonitor extends AdministrativeMonitor {
+    private static final Logger LOGGER = Logger.getLogger(LegacyKeyMigrationMonitor.class.getName());
+
+    /** {@inheritDoc} */
+    @Override
+    public String getDisplayName() {
+        return Messages.LegacyKeyMigrationMonitor_DisplayName();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isActivated() {
+        Progress current = progress;
+        return LegacyKeyMigration.hasUnsaved() || (current != null && !current.isDone());
+    }
+
+    /** @return the progress of the last migration, or null if none was started. */
+    @CheckForNull
+    public Progress getProgress() {
+        return progress;
+    }
+
+    /** Starts migrating all legacy credentials in the background, unless that is already underway. */
+    @RequirePOST
+    public HttpResponse doMigrate() {
+        Jenkins.get().checkPermission(Jenkins.ADMINISTER);
+        start();
+        return HttpResponses.forwardToPreviousPage();
+    }
+
+    @VisibleForTesting
+    synchronized Future<?> start() {
+        Progress current = progress;
+        if (current != null && !current.isDone()) {
+            return current.future;
+        }
+        Progress started = new Progress();
+        progress = started;
+        // Reading and saving many credentials may take a while, which the shared timer threads are not for.
+        ExecutorService migrator = Executors.newSingleThreadExecutor(
+                new NamingThreadFactory(new DaemonThreadFactory(), "LegacyKeyMigrationMonitor"));
+        started.future = migrator.submit(() -> migrateAll(started));
+        migrator.shutdown();
+        return started.future;
+    }
+
+    private static void migrateAll(Progress progress) {
+        ExecutorService readers = Executors.newFixedThreadPool(
+                READER_THREADS, new NamingThreadFactory(new DaemonThreadFactory(), "LegacyKeyMigration"));
+        try (ACLContext ignored = ACL.as2(ACL.SYSTEM2)) {
+            Map<CredentialsStore, List<Candidate>> candidates = findCandidates();
+            int total = 0;
+            for (List<Candidate> inStore : candidates.values()) {
+                total += inStore.size();
+            }
+            progress.total.set(total);
+
+            // Reading the key files is what takes time, saving is serialized by the stores anyway.
+            for (List<Candidate> inStore : candidates.values()) {
+                for (Candidate candidate : inStore) {
+                    candidate.read = readers.submit(candidate.credentials::migrateLegacyKeys);
+                }
+            }
+            for (Map.Entry<CredentialsStore, List<Candidate>> entry : candidates.entrySet()) {
+                save(entry.getKey(), entry.getValue(), progress);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            readers.shutdownNow();
+            progress.done = true;
+        }
+    }
+
+    /**
+     * Saves the migrated credentials of one store, all at once, since each update on its own would
+     * write the whole store again.
+     */
+    private static void save(CredentialsStore store, List<Candidate> candidates, Progress progress)
+            throws InterruptedException {
+        List<Candidate> read = new ArrayList<>();
+        for (Candidate candidate : candidates) {
+            try {
+                candidate.read.get();
+                read.add(candidate);
+            } catch (ExecutionException e) {
+                failed(candidate, e.getCause(), progress);
+            }
+        }
+        if (read.isEmpty()) {
+            return;
+        }
+        try (BulkChange change = new BulkChange(CredentialsStores.saveableOf(store))) {
+            for (Candidate candidate : read) {
+                // Replacing the credential with itself makes the store persist its migrated form.
+                store.updateCredentials(candidate.domain, candidate.credentials, candidate.credentials);
+            }
+            change.commit();
+        } catch (IOException | RuntimeException e) {
+            for (Candidate candidate : read) {
+                failed(candidate, e, progress);
+            }
+            return;
+        }
+        for (Candidate candidate : read) {
+            candidate.credentials.legacyKeysSaved();
+            progress.migrated.incrementAndGet();
+        }
+    }
+
+    private static void failed(Candidate candidate, Throwable cause, Progress progress) {
+        LOGGER.log(
+                Level.WARNING,
+                "Failed to migrate the legacy key files of credential " + candidate.credentials.getId(),
+                cause);
+        progress.failed.incrementAndGet();
+    }
+
+    /** Scans the stores of Jenkins, of all item groups, such as folders, and of all users. */
+    private static Map<CredentialsStore, List<Candidate>> findCandidates() {
+        Map<CredentialsStore, List<Candidate>> candidates = new IdentityHashMap<>();
+        for (CredentialsStore store : CredentialsStores.all()) {
+            for (Domain domain : store.getDomains()) {
+                for (Credentials credentials : store.getCredentials(domain)) {
+                    if (credentials instanceof GoogleRobotPrivateKeyCredentials
+                            && ((GoogleRobotPrivateKeyCredentials) credentials).hasUnsavedLegacyKeys()) {
+                        candidates
+                                .computeIfAbsent(store, unused -> new ArrayList<>())
+                                .add(new Candidate(domain, (GoogleRobotPrivateKeyCredentials) credentials));
+                    }
+                }
+            }
+        }
+        return candidates;
+    }
+
+    /** A legacy credential and the domain it is stored in. */
+    private static final class Candidate {
+        Candidate(Domain domain, GoogleRobotPrivateKeyCredentials credentials) {
+            this.domain = domain;
+            this.credentials = credentials;
+        }
+
+        private final Domain domain;
+        private final GoogleRobotPrivateKeyCredentials credentials;
+
+        /** Reading the key files, once started. */
+        private Future<?> read;
+    }
+
+    /** The progress of a migration, as shown on the monitor. */
+    public static final class Progress {
+        /** @return the number of legacy credentials found, 0 while still scanning. */
+        public int getTotal() {
+            return total.get();
+        }
+
+        /** @return the number of credentials migrated and saved so far. */
+        public int getMigrated() {
+            return migrated.get();
+        }
+
+        /** @return the number of credentials that could not be migrated, see the log for details. */
+        public int getFailed() {
+            return failed.get();
+        }
+
+        /** @return whether the migration has finished. */
+        public boolean isDone() {
+            return done;
+        }
+
+        private final AtomicInteger total = new AtomicInteger();
+        private final AtomicInteger migrated = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private volatile boolean done;
+        private volatile Future<?> future;
+    }
+
+    /** The number of key files read at the same time. */
+    private static final int READER_THREADS = 4;
+
+    @CheckForNull
+    private volatile Progress progress;
+}
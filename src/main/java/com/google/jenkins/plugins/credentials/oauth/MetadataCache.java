@@ -0,0 +1,148 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.jenkins.plugins.credentials.oauth;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.jenkins.plugins.util.ExecutorException;
+import com.google.jenkins.plugins.util.MetadataReader;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Caches the values and trees of values read through a {@link MetadataReader}, such as the service
+ * account and project id of the instance. Each value read is watched in the background with a
+ * long-lived request, see {@link MetadataReader#watchMetadata}, so that changes are pushed to the
+ * cache instead of every use having to read the value again. Values are only served from the cache while they are being
+ * watched: if the reader cannot watch, or watching fails, every use reads the value as before.
+ * Values that were not used for a while are no longer watched.
+ */
+final class MetadataCache {
+    private static final Logger LOGGER = Logger.getLogger(MetadataCache.class.getName());
+
+    MetadataCache(MetadataReader reader) {
+        this.reader = checkNotNull(reader);
+    }
+
+    /**
+     * Reads the specified sub-element out of the instance's metadata, see {@link
+     * MetadataReader#readMetadata}.
+     */
+    String readMetadata(String metadataPath) throws IOException, ExecutorException {
+        return read(values, reader::watchMetadata, metadataPath);
+    }
+
+    /**
+     * Reads the whole tree of values below the specified directory, see {@link
+     * MetadataReader#readMetadataTree}.
+     */
+    Map<String, Object> readMetadataTree(String directoryPath) throws IOException, ExecutorException {
+        return read(trees, reader::watchMetadataTree, directoryPath);
+    }
+
+    private <T> T read(ConcurrentMap<String, Watch<T>> watches, Watcher<T> watcher, String path)
+            throws IOException, ExecutorException {
+        Watch<T> watch = watches.get(path);
+        if (watch != null) {
+            return watch.get();
+        }
+        MetadataReader.Versioned<T> current = watcher.watch(path, null);
+        if (current.getEtag() != null) {
+            Watch<T> started = new Watch<>(watches, watcher, path, current);
+            if (watches.putIfAbsent(path, started) == null) {
+                WATCHERS.execute(started);
+            }
+        }
+        return current.getValue();
+    }
+
+    @VisibleForTesting
+    boolean isWatched(String metadataPath) {
+        return values.containsKey(metadataPath) || trees.containsKey(metadataPath);
+    }
+
+    /** Either {@link MetadataReader#watchMetadata} or {@link MetadataReader#watchMetadataTree}. */
+    private interface Watcher<T> {
+        MetadataReader.Versioned<T> watch(String path, @CheckForNull String lastEtag)
+                throws IOException, ExecutorException;
+    }
+
+    /** Keeps a value up to date for as long as it is used. */
+    private static final class Watch<T> implements Runnable {
+        Watch(
+                ConcurrentMap<String, Watch<T>> watches,
+                Watcher<T> watcher,
+                String path,
+                MetadataReader.Versioned<T> current) {
+            this.watches = watches;
+            this.watcher = watcher;
+            this.path = path;
+            this.current = current;
+            this.lastUsed = System.currentTimeMillis();
+        }
+
+        T get() {
+            lastUsed = System.currentTimeMillis();
+            return current.getValue();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (System.currentTimeMillis() - lastUsed < IDLE_MILLIS) {
+                    MetadataReader.Versioned<T> next = watcher.watch(path, current.getEtag());
+                    if (next.getEtag() == null) {
+                        break;
+                    }
+                    current = next;
+                }
+            } catch (IOException | ExecutorException | RuntimeException e) {
+                LOGGER.log(Level.FINE, "Stopped watching the metadata " + path, e);
+            } finally {
+                // From now on the value is read again on every use, until it is watched again.
+                watches.remove(path, this);
+            }
+        }
+
+        private final ConcurrentMap<String, Watch<T>> watches;
+        private final Watcher<T> watcher;
+        private final String path;
+        private volatile MetadataReader.Versioned<T> current;
+        private volatile long lastUsed;
+    }
+
+    /** How long a value is watched after it was last used. */
+    private static final long IDLE_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    /** Runs the watches, which each block a thread for as long as they last. */
+    private static final ExecutorService WATCHERS = Executors.newCachedThreadPool(
+            new NamingThreadFactory(new DaemonThreadFactory(), MetadataCache.class.getSimpleName()));
+
+    private final MetadataReader reader;
+    private final ConcurrentMap<String, Watch<String>> values = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Watch<Map<String, Object>>> trees = new ConcurrentHashMap<>();
+}
@@ -23,18 +23,14 @@ import hudson.Extension;
 import hudson.util.FormValidation;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.security.GeneralSecurityException;
 import java.security.KeyStore;
-import java.security.KeyStoreException;
-import java.security.NoSuchAlgorithmException;
 import java.security.PrivateKey;
-import java.security.cert.CertificateException;
+import java.util.Arrays;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import jenkins.model.Jenkins;
 import org.apache.commons.fileupload.FileItem;
-import org.apache.commons.io.IOUtils;
 import org.kohsuke.accmod.Restricted;
 import org.kohsuke.accmod.restrictions.DoNotUse;
 import org.kohsuke.stapler.DataBoundConstructor;
@@ -68,6 +64,12 @@ public class P12ServiceAccountConfig extends ServiceAccountConfig {
     @CheckForNull
     private transient String p12KeyFile;
 
+    /** The decoded form of {@link #secretP12Key}, so that it is decrypted once per key. */
+    private transient volatile DecodedP12Key decodedP12Key;
+
+    /** Whether {@link #p12KeyFile} still has to be read, see {@link LegacyKeyMigration}. */
+    private transient volatile boolean legacyKeyFilePending;
+
     /**
      * @param emailAddress The service account email address.
      * @since 0.8
@@ -117,7 +119,7 @@ public class P12ServiceAccountConfig extends ServiceAccountConfig {
     /** @param secretP12Key The previous p12 key file content. */
     @DataBoundSetter
     public void setSecretP12Key(SecretBytes secretP12Key) {
-        if (secretP12Key != null && secretP12Key.getPlainData().length > 0) {
+        if (!isEmpty(secretP12Key)) {
             this.secretP12Key = secretP12Key;
         }
     }
@@ -132,16 +134,37 @@ public class P12ServiceAccountConfig extends ServiceAccountConfig {
 
     @SuppressFBWarnings("RCN_REDUNDANT_NULLCHECK_OF_NONNULL_VALUE")
     private Object readResolve() {
-        if (secretP12Key == null) {
-            // google-oauth-plugin < 0.7
-            return new P12ServiceAccountConfig(
-                    getEmailAddress(),
-                    null, // p12KeyFileUpload
-                    getP12KeyFile());
+        if (secretP12Key == null && p12KeyFile != null) {
+            // google-oauth-plugin < 0.7, the key file is read on first use.
+            legacyKeyFilePending = true;
+            LegacyKeyMigration.schedule(this, this::migrateLegacyKeyFile);
         }
         return this;
     }
 
+    private Object writeReplace() {
+        // The path is not persisted, so it must be replaced with the key before saving.
+        migrateLegacyKeyFile();
+        LegacyKeyMigration.saved(this);
+        return this;
+    }
+
+    @Override
+    void migrateLegacyKeyFile() {
+        if (!legacyKeyFilePending) {
+            return;
+        }
+        synchronized (this) {
+            if (legacyKeyFilePending) {
+                String path = p12KeyFile;
+                setFilename(path);
+                setSecretP12Key(LegacyKeyMigration.asSystem(() -> getSecretBytesFromFile(path)));
+                p12KeyFile = null;
+                legacyKeyFilePending = false;
+            }
+        }
+    }
+
     @Override
     public DescriptorImpl getDescriptor() {
         return (DescriptorImpl) Jenkins.get().getDescriptorOrDie(P12ServiceAccountConfig.class);
@@ -157,6 +180,7 @@ public class P12ServiceAccountConfig extends ServiceAccountConfig {
      */
     @CheckForNull
     public String getFilename() {
+        migrateLegacyKeyFile();
         return filename;
     }
 
@@ -168,12 +192,14 @@ public class P12ServiceAccountConfig extends ServiceAccountConfig {
     @Restricted(DoNotUse.class) // UI:  Required for stapler call of setter.
     @CheckForNull
     public SecretBytes getSecretP12Key() {
+        migrateLegacyKeyFile();
         return secretP12Key;
     }
 
     /** @return The path of the previous p12 key file. */
     @Deprecated
     public String getP12KeyFile() {
+        migrateLegacyKeyFile();
         return p12KeyFile;
     }
 
@@ -193,37 +219,71 @@ public class P12ServiceAccountConfig extends ServiceAccountConfig {
         return getEmailAddress();
     }
 
+    @Override
+    @CheckForNull
+    String getKeyFingerprint() {
+        // The account is not part of the key file, so it is part of the fingerprint.
+        migrateLegacyKeyFile();
+        String fingerprint = fingerprint(secretP12Key);
+        return fingerprint == null ? null : emailAddress + ':' + fingerprint;
+    }
+
     @Override
     public PrivateKey getPrivateKey() {
         try {
-            KeyStore p12KeyStore = getP12KeyStore();
-            if (p12KeyStore == null) {
+            KeyMaterial keyMaterial = getDecodedP12Key().keyMaterial;
+            if (keyMaterial == null) {
                 return null;
             }
-            return (PrivateKey) p12KeyStore.getKey(DEFAULT_P12_ALIAS, DEFAULT_P12_SECRET.toCharArray());
+            return keyMaterial.getPrivateKey();
         } catch (IOException | GeneralSecurityException e) {
             LOGGER.log(Level.SEVERE, "Failed to read private key", e);
         }
         return null;
     }
 
+    private DecodedP12Key getDecodedP12Key() throws IOException, GeneralSecurityException {
+        migrateLegacyKeyFile();
+        SecretBytes source = secretP12Key;
+        DecodedP12Key decoded = decodedP12Key;
+        if (decoded == null || decoded.source != source) {
+            // First use, or the key was replaced since.
+            decoded = new DecodedP12Key(source, decode(source));
+            decodedP12Key = decoded;
+        }
+        return decoded;
+    }
+
     @CheckForNull
-    private KeyStore getP12KeyStore()
-            throws KeyStoreException, IOException, CertificateException, NoSuchAlgorithmException {
-        InputStream in = null;
-        if (secretP12Key == null) {
+    private static KeyMaterial decode(@CheckForNull SecretBytes source) throws IOException, GeneralSecurityException {
+        if (source == null) {
             return null;
         }
+        byte[] plainData = source.getPlainData();
         try {
             KeyStore keyStore = KeyStore.getInstance("PKCS12");
-            in = new ByteArrayInputStream(secretP12Key.getPlainData());
-            keyStore.load(in, DEFAULT_P12_SECRET.toCharArray());
-            return keyStore;
+            keyStore.load(new ByteArrayInputStream(plainData), DEFAULT_P12_SECRET.toCharArray());
+            PrivateKey privateKey = (PrivateKey) keyStore.getKey(DEFAULT_P12_ALIAS, DEFAULT_P12_SECRET.toCharArray());
+            return privateKey == null ? null : KeyMaterial.of(privateKey);
         } finally {
-            IOUtils.closeQuietly(in);
+            Arrays.fill(plainData, (byte) 0);
         }
     }
 
+    /** The decoded private key of a P12 key, or null if it has none, along with the key it came from. */
+    private static final class DecodedP12Key {
+        DecodedP12Key(@CheckForNull SecretBytes source, @CheckForNull KeyMaterial keyMaterial) {
+            this.source = source;
+            this.keyMaterial = keyMaterial;
+        }
+
+        @CheckForNull
+        private final SecretBytes source;
+
+        @CheckForNull
+        private final KeyMaterial keyMaterial;
+    }
+
     /** Descriptor for P12 service account authentication. */
     @Extension
     public static final class DescriptorImpl extends Descriptor {
@@ -18,13 +18,24 @@ package com.google.jenkins.plugins.credentials.oauth;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import com.cloudbees.plugins.credentials.CredentialsScope;
+import com.google.api.client.auth.oauth2.BearerToken;
 import com.google.api.client.auth.oauth2.Credential;
+import com.google.api.client.auth.oauth2.TokenResponse;
 import com.google.api.client.googleapis.auth.oauth2.GoogleCredential;
-import com.google.common.collect.Ordering;
+import com.google.common.base.Strings;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import hudson.remoting.Channel;
+import hudson.remoting.VirtualChannel;
+import hudson.util.Secret;
+import java.io.Externalizable;
 import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import java.security.GeneralSecurityException;
-import org.joda.time.DateTime;
+import java.time.Duration;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * As some implementations of {@link GoogleRobotCredentials} are bound to the controller, this
@@ -32,20 +43,19 @@ import org.joda.time.DateTime;
  * needs to remote credential C, with some requirement R, it would instead remote {@code
  * C.forRemote(R)} to instantiate one of these.
  *
- * <p>TODO(mattmoor): Consider ways to use channels to remove the time limitation that this has
- * (access token expires).
+ * <p>Once the access token nears expiration, a fresh one is requested from the controller over the
+ * channel this credential was received on, see {@link RemoteTokenRefresher}.
  *
  * @author Matt Moore
  */
 final class RemotableGoogleCredentials extends GoogleRobotCredentials {
+    private static final Logger LOGGER = Logger.getLogger(RemotableGoogleCredentials.class.getName());
+
     /**
      * Construct a remotable credential. This should never be used directly, which is why this class
      * is {@code package-private}. This should only be called from {@link
      * GoogleRobotCredentials#forRemote}.
      */
-    @SuppressFBWarnings(
-            value = "NP_NULL_ON_SOME_PATH_FROM_RETURN_VALUE",
-            justification = "False positive from what I can see in Ordering.natural().nullsFirst()")
     public RemotableGoogleCredentials(
             GoogleRobotCredentials credentials,
             GoogleOAuth2ScopeRequirement requirement,
@@ -60,23 +70,11 @@ final class RemotableGoogleCredentials extends GoogleRobotCredentials {
         this.username = credentials.getUsername();
 
         // Eagerly create the access token we will use on the remote machine.
-        Credential credential = credentials.getGoogleCredential(checkNotNull(requirement));
-        try {
-            Long rawExpiration = credential.getExpiresInSeconds();
-
-            if (Ordering.natural().nullsFirst().compare(rawExpiration, MINIMUM_DURATION_SECONDS) < 0) {
-                if (!credential.refreshToken()) {
-                    throw new GeneralSecurityException(Messages.RemotableGoogleCredentials_NoAccessToken());
-                }
-            }
-        } catch (IOException e) {
-            throw new GeneralSecurityException(Messages.RemotableGoogleCredentials_NoAccessToken(), e);
-        }
-        this.accessToken = checkNotNull(credential.getAccessToken());
-        this.expiration = new DateTime()
-                .plusSeconds(checkNotNull(credential.getExpiresInSeconds()).intValue())
-                .getMillis();
+        this.token = fetchToken(credentials, checkNotNull(requirement), module.getTokenClock());
+        this.refreshHandle = RemoteTokenRefresher.register(credentials, requirement, module.getTokenClock());
+        this.channel = null;
     }
+
     /**
      * Construct a remotable credential. This should never be used directly - this constructor is only
      * for migrating old credentials that had no id and relied on the projectId during readResolve().
@@ -88,12 +86,14 @@ final class RemotableGoogleCredentials extends GoogleRobotCredentials {
             String description,
             GoogleRobotCredentialsModule module,
             String username,
-            String accessToken,
-            long expiration) {
+            RemoteTokenRefresher.Token token,
+            String refreshHandle,
+            @CheckForNull VirtualChannel channel) {
         super(scope, id, projectId, description, module);
         this.username = username;
-        this.accessToken = accessToken;
-        this.expiration = expiration;
+        this.token = token;
+        this.refreshHandle = refreshHandle;
+        this.channel = channel;
     }
 
     @SuppressFBWarnings(
@@ -101,15 +101,160 @@ final class RemotableGoogleCredentials extends GoogleRobotCredentials {
             justification = "for migrating older credentials that did not have a separate id field, and would really "
                     + "have a null id when attempted to deserialize. readResolve overwrites these nulls")
     private Object readResolve() throws Exception {
+        GoogleRobotCredentialsModule module =
+                getModule() == null ? GoogleRobotCredentialsModule.getDefault() : getModule();
         return new RemotableGoogleCredentials(
                 getScope() == null ? CredentialsScope.GLOBAL : getScope(),
                 getId() == null ? getProjectId() : getId(),
                 getProjectId(),
                 getDescription(),
-                getModule(),
+                module,
                 username,
-                accessToken,
-                expiration);
+                token == null ? legacyToken(module.getTokenClock()) : token,
+                refreshHandle,
+                // When received from the controller, this is the channel to ask for fresh tokens.
+                Channel.current());
+    }
+
+    /**
+     * Converts the token of the XML form written by versions before {@link SerializedForm}, which cannot
+     * be refreshed. Without one it is an expired token, so that using it fails the request instead of
+     * the credential.
+     */
+    @SuppressWarnings("deprecation")
+    private RemoteTokenRefresher.Token legacyToken(TokenClock clock) {
+        // That expiration was read from the wall clock, only the lifetime it leaves carries over.
+        long lifetimeMillis = accessToken == null ? 0 : expiration - System.currentTimeMillis();
+        return new RemoteTokenRefresher.Token(
+                Strings.nullToEmpty(accessToken), clock.expirationIn(lifetimeMillis), clock);
+    }
+
+    /**
+     * Only what the remote side needs travels, see {@link SerializedForm}.
+     *
+     * @return the wire form of this credential.
+     */
+    private Object writeReplace() {
+        return new SerializedForm(this);
+    }
+
+    /**
+     * The wire form of {@link RemotableGoogleCredentials}. Serializing the credential itself would
+     * carry its module, description and the rest of the {@code BaseStandardCredentials} state along
+     * with the token, for every step that fans out to an agent. Instead only the identity, the token
+     * and what is needed to refresh it travel, and the receiving side uses the shared default module,
+     * which only creates a transport once one is asked for. The expiration of the token travels as
+     * its remaining lifetime, which the receiving side tracks on the clock of that module.
+     */
+    private static final class SerializedForm implements Externalizable {
+        /** For {@link Externalizable} */
+        public SerializedForm() {}
+
+        SerializedForm(RemotableGoogleCredentials credentials) {
+            this.scope = credentials.getScope() == null ? CredentialsScope.GLOBAL : credentials.getScope();
+            this.id = credentials.getId();
+            this.projectId = credentials.getProjectId();
+            this.username = credentials.username;
+            this.accessToken = credentials.token.getAccessToken();
+            this.lifetimeMillis = credentials.token.getLifetimeMillis();
+            // Over a channel, send a handle that only works when presented back over that channel.
+            Channel channel = Channel.current();
+            String handle = credentials.refreshHandle;
+            this.refreshHandle =
+                    handle == null || channel == null ? handle : RemoteTokenRefresher.bind(handle, channel);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void writeExternal(ObjectOutput out) throws IOException {
+            out.writeByte(FORMAT_VERSION);
+            out.writeUTF(scope.name());
+            writeNullable(out, id);
+            writeNullable(out, projectId);
+            writeNullable(out, username);
+            out.writeUTF(accessToken);
+            // The clocks on either side need not agree, so send the remaining lifetime.
+            out.writeLong(lifetimeMillis);
+            writeNullable(out, refreshHandle);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void readExternal(ObjectInput in) throws IOException {
+            byte version = in.readByte();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported RemotableGoogleCredentials format: " + version);
+            }
+            scope = CredentialsScope.valueOf(in.readUTF());
+            id = readNullable(in);
+            projectId = readNullable(in);
+            username = readNullable(in);
+            accessToken = in.readUTF();
+            lifetimeMillis = in.readLong();
+            refreshHandle = readNullable(in);
+        }
+
+        /** Writes a string that may be null, which {@link ObjectOutput#writeUTF} refuses. */
+        private static void writeNullable(ObjectOutput out, @CheckForNull String value) throws IOException {
+            out.writeBoolean(value != null);
+            if (value != null) {
+                out.writeUTF(value);
+            }
+        }
+
+        /** Reads a string written by {@link #writeNullable}. */
+        @CheckForNull
+        private static String readNullable(ObjectInput in) throws IOException {
+            return in.readBoolean() ? in.readUTF() : null;
+        }
+
+        private Object readResolve() {
+            GoogleRobotCredentialsModule module = GoogleRobotCredentialsModule.getDefault();
+            TokenClock clock = module.getTokenClock();
+            return new RemotableGoogleCredentials(
+                    scope,
+                    id,
+                    projectId,
+                    "",
+                    module,
+                    username,
+                    new RemoteTokenRefresher.Token(accessToken, clock.expirationIn(lifetimeMillis), clock),
+                    refreshHandle,
+                    // When received from the controller, this is the channel to ask for fresh tokens.
+                    Channel.current());
+        }
+
+        private CredentialsScope scope;
+        private String id;
+        private String projectId;
+
+        @CheckForNull
+        private String username;
+        private String accessToken;
+        private long lifetimeMillis;
+
+        @CheckForNull
+        private String refreshHandle;
+
+        private static final byte FORMAT_VERSION = 2;
+
+        /** For {@link java.io.Serializable} */
+        private static final long serialVersionUID = 1L;
+    }
+
+    /**
+     * Retrieves an access token from the given credential with enough time left to be of use on a
+     * remote machine. This goes through the credential's cache and fetches in flight, so that many
+     * remote copies refreshing at once share a token.
+     *
+     * @param clock The clock to track the expiration of the token with.
+     */
+    static RemoteTokenRefresher.Token fetchToken(
+            GoogleRobotCredentials credentials, GoogleOAuth2ScopeRequirement requirement, TokenClock clock)
+            throws GeneralSecurityException {
+        AccessToken token = credentials.getGoogleAccessToken(checkNotNull(requirement), MINIMUM_LIFETIME);
+        return new RemoteTokenRefresher.Token(
+                Secret.toString(token.getValue()), clock.expirationIn(token.getLifetimeMillis()), clock);
     }
 
     /** {@inheritDoc} */
@@ -128,32 +273,133 @@ final class RemotableGoogleCredentials extends GoogleRobotCredentials {
     @Override
     public Credential getGoogleCredential(GoogleOAuth2ScopeRequirement requirement) throws GeneralSecurityException {
         // Return a credential synthesized from our stored access token
-        // and expiration.
-        //
-        // TODO(mattmoor): Consider throwing an exception if the access token
-        // has expired.
-        long lifetimeSeconds = (expiration - new DateTime().getMillis()) / 1000;
-
-        return new GoogleCredential.Builder()
-                .setTransport(getModule().getHttpTransport())
-                .setJsonFactory(getModule().getJsonFactory())
-                .build()
-                .setAccessToken(accessToken)
-                .setExpiresInSeconds(lifetimeSeconds);
+        // and expiration, after refreshing them if they are about to expire.
+        RemoteTokenRefresher.Token current = refreshIfNeeded();
+
+        TokenCredential credential = this.credential;
+        if (credential == null) {
+            credential = new TokenCredential(this);
+            this.credential = credential;
+        }
+        credential.update(current);
+        return credential;
+    }
+
+    /**
+     * Asks the controller for a fresh token once ours has less than {@link #MINIMUM_DURATION_SECONDS}
+     * left. Failing that, the current token is kept, which is all this credential could do before.
+     */
+    private RemoteTokenRefresher.Token refreshIfNeeded() {
+        RemoteTokenRefresher.Token current = token;
+        if (current.getLifetimeSeconds() >= MINIMUM_DURATION_SECONDS || refreshHandle == null) {
+            return current;
+        }
+        try {
+            current = refresh();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, Messages.RemotableGoogleCredentials_NoAccessToken(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return current;
+    }
+
+    /** Asks the controller for a fresh token, unconditionally. */
+    private RemoteTokenRefresher.Token refresh() throws IOException, InterruptedException {
+        RemoteTokenRefresher.Token current = token;
+        if (refreshHandle == null) {
+            return current;
+        }
+        current = RemoteTokenRefresher.refresh(channel, refreshHandle, current);
+        token = current;
+        return current;
+    }
+
+    /**
+     * The {@link Credential} handed out by {@link #getGoogleCredential}. It only carries the bearer
+     * token, so unlike a {@link GoogleCredential} it needs no transport or JSON factory, and a single
+     * instance is shared by all callers. Its remaining lifetime is computed from the expiration on
+     * every call, and refreshing it asks the controller for a fresh token.
+     */
+    private static final class TokenCredential extends Credential {
+        TokenCredential(RemotableGoogleCredentials owner) {
+            // Expirations are tracked on the clock of the module, so the credential has to agree.
+            super(new Credential.Builder(BearerToken.authorizationHeaderAccessMethod())
+                    .setClock(owner.getModule().getTokenClock()));
+            this.owner = owner;
+        }
+
+        /** Points this credential at the given token, unless it already is. */
+        void update(RemoteTokenRefresher.Token token) {
+            if (current != token) {
+                setAccessToken(token.getAccessToken());
+                setExpirationTimeMilliseconds(token.getExpiration());
+                current = token;
+            }
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        protected TokenResponse executeRefreshToken() throws IOException {
+            RemoteTokenRefresher.Token token;
+            try {
+                token = owner.refresh();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            current = token;
+            return new TokenResponse()
+                    .setAccessToken(token.getAccessToken())
+                    .setTokenType("Bearer")
+                    .setExpiresInSeconds(token.getLifetimeSeconds());
+        }
+
+        private final RemotableGoogleCredentials owner;
+
+        private volatile RemoteTokenRefresher.Token current;
+    }
+
+    /**
+     * Whether the access token still has at least {@link #MINIMUM_DURATION_SECONDS} left, which is
+     * what {@link GoogleRobotCredentials#forRemote} requires to hand this credential out again.
+     */
+    boolean hasMinimumLifetime() {
+        return token.getLifetimeSeconds() > MINIMUM_DURATION_SECONDS;
     }
 
     /** The identity of the credential. */
     private final String username;
 
-    /** The access token eagerly retrieved from the original credential. */
-    private final String accessToken;
+    /** The access token eagerly retrieved from the original credential, and later refreshed. */
+    private volatile RemoteTokenRefresher.Token token;
+
+    /** The access token in the form written by versions before {@link SerializedForm}, see {@link #readResolve}. */
+    @Deprecated
+    @CheckForNull
+    private String accessToken;
 
-    /** The time at which the accessToken will expire. */
-    private final long expiration;
+    /** The wall clock time at which {@link #accessToken} expires. */
+    @Deprecated
+    private long expiration;
+
+    /** The handle under which the controller hands out fresh access tokens for this credential. */
+    @CheckForNull
+    private final String refreshHandle;
+
+    /** The channel to the controller, null when this credential has not been remoted. */
+    @CheckForNull
+    private final transient VirtualChannel channel;
+
+    /** Created on first use of {@link #getGoogleCredential}, then shared. */
+    private transient volatile TokenCredential credential;
 
     /**
      * The minimum duration {@code 5 minutes} to allow for an access token before attempting to
      * refresh it.
      */
-    private static final Long MINIMUM_DURATION_SECONDS = 300L;
+    static final Long MINIMUM_DURATION_SECONDS = 300L;
+
+    /** {@link #MINIMUM_DURATION_SECONDS}, as asked of the original credential. */
+    private static final Duration MINIMUM_LIFETIME = Duration.ofSeconds(MINIMUM_DURATION_SECONDS);
 }
@@ -0,0 +1,450 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.jenkins.plugins.credentials.oauth;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.cloudbees.plugins.credentials.Credentials;
+import com.cloudbees.plugins.credentials.CredentialsStore;
+import com.cloudbees.plugins.credentials.domains.Domain;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import hudson.remoting.Channel;
+import hudson.remoting.VirtualChannel;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+import java.io.IOException;
+import java.io.Serializable;
+import java.security.GeneralSecurityException;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import jenkins.security.SlaveToMasterCallable;
+
+/**
+ * Lets a {@link RemotableGoogleCredentials} that was sent to an agent obtain a fresh access token
+ * from the controller once its own nears expiry, instead of the credential having to be remoted
+ * again.
+ *
+ * <p>When the controller creates a remotable credential, it registers the original credential and
+ * requirement under a random handle. That handle only works within the controller. Whenever the
+ * remotable credential is sent over a channel, a handle bound to that channel travels in its place,
+ * see {@link #bind}, and the agent presents it back through a {@link SlaveToMasterCallable}. So an
+ * agent can only ever refresh tokens it was already given, and only over the channel it was given
+ * them on. Before a token is minted for a bound handle, the credential is looked up again, in the
+ * store it was last found in, or else in those of Jenkins, folders and users, so once it was deleted
+ * or its key replaced, no more tokens are handed out. Bound handles are dropped when their channel
+ * closes, and every handle a day after it was registered at the latest.
+ *
+ * <p>On the agent, concurrent refreshes for the same handle are batched into a single call, and the
+ * latest token per handle is kept so that every copy of the same remotable credential on that agent
+ * benefits from one refresh.
+ */
+final class RemoteTokenRefresher {
+    private RemoteTokenRefresher() {}
+
+    /**
+     * Registers a credential and requirement, as seen on the controller, for later refreshes.
+     *
+     * @param clock The clock the fresh tokens are tracked with on the controller.
+     * @return the handle under which the agent may ask for a fresh token.
+     */
+    static String register(
+            GoogleRobotCredentials credentials, GoogleOAuth2ScopeRequirement requirement, TokenClock clock) {
+        return register(new Registration(checkNotNull(credentials), checkNotNull(requirement), checkNotNull(clock)));
+    }
+
+    private static String register(Registration registration) {
+        String handle = UUID.randomUUID().toString();
+        REGISTRATIONS.put(handle, registration);
+        return handle;
+    }
+
+    /**
+     * Derives a handle that only works when presented over the given channel, for a remotable
+     * credential about to be sent over it. The same channel always gets the same handle, for as long
+     * as that handle is registered.
+     *
+     * @param handle A handle returned by {@link #register}.
+     * @return the handle bound to {@code channel}, or {@code handle} itself if it was not registered by
+     *     {@link #register} in this JVM, e.g. when a credential received from the controller is sent on.
+     */
+    static String bind(String handle, Channel channel) {
+        Registration registration = REGISTRATIONS.getIfPresent(handle);
+        if (registration == null || registration.channel != null) {
+            return handle;
+        }
+        ConcurrentMap<String, String> bound;
+        try {
+            bound = BOUND.get(channel, () -> listen(channel));
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+        return bound.compute(
+                handle,
+                (local, existing) -> existing != null && REGISTRATIONS.getIfPresent(existing) != null
+                        ? existing
+                        : register(registration.boundTo(channel)));
+    }
+
+    /** Forgets the handles bound to a channel once it closes. */
+    private static ConcurrentMap<String, String> listen(Channel channel) {
+        channel.addListener(new Channel.Listener() {
+            @Override
+            public void onClosed(Channel closed, IOException cause) {
+                forget(closed);
+            }
+        });
+        return new ConcurrentHashMap<>();
+    }
+
+    /** Drops the handles bound to the given channel. */
+    static void forget(Channel channel) {
+        BOUND.invalidate(channel);
+        REGISTRATIONS.asMap().values().removeIf(registration -> registration.channel == channel);
+    }
+
+    /**
+     * Mints a fresh token for a registered handle, on the controller.
+     *
+     * @param channel The channel the handle was presented over, or null when asked for within the
+     *     controller.
+     */
+    @VisibleForTesting
+    static Token fetch(String handle, @CheckForNull Channel channel) throws IOException {
+        Registration registration = REGISTRATIONS.getIfPresent(handle);
+        if (registration == null || registration.channel != channel) {
+            // Do not tell apart unknown handles from the handles of other channels.
+            throw new IOException(Messages.RemotableGoogleCredentials_UnknownRefreshHandle());
+        }
+        GoogleRobotCredentials credentials = registration.resolve();
+        if (credentials == null) {
+            throw new IOException(Messages.RemotableGoogleCredentials_CredentialChanged());
+        }
+        try {
+            return RemotableGoogleCredentials.fetchToken(credentials, registration.requirement, registration.clock);
+        } catch (GeneralSecurityException e) {
+            throw new IOException(Messages.RemotableGoogleCredentials_NoAccessToken(), e);
+        }
+    }
+
+    /**
+     * Obtains a fresh token for the given handle.
+     *
+     * @param channel The channel to the controller, or null when already running on the controller.
+     * @param handle The handle returned by {@link #register}.
+     * @param current The token the caller currently holds.
+     * @return a token at least as recent as {@code current}.
+     */
+    static Token refresh(@CheckForNull VirtualChannel channel, String handle, Token current)
+            throws IOException, InterruptedException {
+        Received latest = LATEST.getIfPresent(handle);
+        if (latest != null && (latest.isRecent() || latest.token.getExpiration() > current.getExpiration())) {
+            // Another copy of this credential already refreshed, or we just asked and the controller
+            // had nothing better to offer.
+            return latest.token;
+        }
+
+        CompletableFuture<Token> mine = new CompletableFuture<>();
+        CompletableFuture<Token> inFlight = IN_FLIGHT.putIfAbsent(handle, mine);
+        if (inFlight != null) {
+            return await(inFlight);
+        }
+        try {
+            Token token = channel == null ? fetch(handle, null) : channel.call(new RefreshCallable(handle));
+            LATEST.put(handle, new Received(token));
+            mine.complete(token);
+            return token;
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            IN_FLIGHT.remove(handle, mine);
+        }
+    }
+
+    private static Token await(CompletableFuture<Token> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof InterruptedException) {
+                throw (InterruptedException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    @VisibleForTesting
+    static void clearForTesting() {
+        REGISTRATIONS.invalidateAll();
+        BOUND.invalidateAll();
+        LATEST.invalidateAll();
+    }
+
+    /** An access token along with the time at which it expires, on the clock it is tracked with. */
+    static final class Token implements Serializable {
+        Token(String accessToken, long expiration, TokenClock clock) {
+            this.accessToken = checkNotNull(accessToken);
+            this.expiration = expiration;
+            this.clock = checkNotNull(clock);
+        }
+
+        String getAccessToken() {
+            return accessToken;
+        }
+
+        /** The time at which the access token will expire, see {@link TokenClock#currentTimeMillis}. */
+        long getExpiration() {
+            return expiration;
+        }
+
+        /** The number of milliseconds until the access token expires. */
+        long getLifetimeMillis() {
+            return clock.lifetimeMillis(expiration);
+        }
+
+        /** The number of seconds until the access token expires. */
+        long getLifetimeSeconds() {
+            return TimeUnit.MILLISECONDS.toSeconds(getLifetimeMillis());
+        }
+
+        TokenClock getClock() {
+            return clock;
+        }
+
+        /**
+         * The controller and agent clocks need not agree, so what travels is the remaining lifetime,
+         * which the receiving side turns back into an expiration on its own clock.
+         */
+        private Object writeReplace() {
+            return new SerializedToken(accessToken, getLifetimeMillis());
+        }
+
+        private final String accessToken;
+        private final long expiration;
+        private final transient TokenClock clock;
+
+        /** For {@link Serializable} */
+        private static final long serialVersionUID = 1L;
+    }
+
+    /** The wire form of {@link Token}. */
+    private static final class SerializedToken implements Serializable {
+        SerializedToken(String accessToken, long lifetimeMillis) {
+            this.accessToken = accessToken;
+            this.lifetimeMillis = lifetimeMillis;
+        }
+
+        private Object readResolve() {
+            TokenClock clock = TokenClock.system();
+            return new Token(accessToken, clock.expirationIn(lifetimeMillis), clock);
+        }
+
+        private final String accessToken;
+        private final long lifetimeMillis;
+
+        /** For {@link Serializable} */
+        private static final long serialVersionUID = 1L;
+    }
+
+    /** Runs on the controller to mint a fresh token for a registered handle. */
+    private static final class RefreshCallable extends SlaveToMasterCallable<Token, IOException> {
+        RefreshCallable(String handle) {
+            this.handle = handle;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public Token call() throws IOException {
+            return fetch(handle, Channel.current());
+        }
+
+        private final String handle;
+
+        /** For {@link Serializable} */
+        private static final long serialVersionUID = 1L;
+    }
+
+    /** What the controller remembers about a handle. */
+    private static final class Registration {
+        Registration(GoogleRobotCredentials credentials, GoogleOAuth2ScopeRequirement requirement, TokenClock clock) {
+            this(
+                    credentials,
+                    credentials.getClass(),
+                    credentials.getId(),
+                    credentials.getTokenCacheFingerprint(),
+                    requirement,
+                    clock,
+                    null);
+        }
+
+        private Registration(
+                @CheckForNull GoogleRobotCredentials credentials,
+                Class<?> type,
+                String id,
+                @CheckForNull String fingerprint,
+                GoogleOAuth2ScopeRequirement requirement,
+                TokenClock clock,
+                @CheckForNull Channel channel) {
+            this.credentials = credentials;
+            this.type = type;
+            this.id = id;
+            this.fingerprint = fingerprint;
+            this.requirement = requirement;
+            this.clock = clock;
+            this.channel = channel;
+        }
+
+        /** The same registration, for use over the given channel only. */
+        Registration boundTo(Channel channel) {
+            // Bound handles look the credential up again, so they do not hold on to this instance.
+            return new Registration(null, type, id, fingerprint, requirement, clock, checkNotNull(channel));
+        }
+
+        /**
+         * @return the credential to mint tokens with, or null if it no longer exists, or no longer is
+         *     the credential this handle was registered for.
+         */
+        @CheckForNull
+        GoogleRobotCredentials resolve() {
+            if (channel == null) {
+                // Only used within the controller, by the remotable credential holding the original.
+                return credentials;
+            }
+            try (ACLContext ignored = ACL.as2(ACL.SYSTEM2)) {
+                CredentialsStore known = store;
+                GoogleRobotCredentials current = known == null ? null : find(known);
+                if (current != null) {
+                    return current;
+                }
+                // Also finds credentials of providers without stores, but only those of Jenkins itself.
+                current = GoogleRobotCredentials.getById(id);
+                if (current != null && matches(current)) {
+                    return current;
+                }
+                for (CredentialsStore candidate : CredentialsStores.all()) {
+                    current = find(candidate);
+                    if (current != null) {
+                        store = candidate;
+                        return current;
+                    }
+                }
+                return null;
+            }
+        }
+
+        @CheckForNull
+        private GoogleRobotCredentials find(CredentialsStore candidate) {
+            for (Domain domain : candidate.getDomains()) {
+                for (Credentials stored : candidate.getCredentials(domain)) {
+                    if (stored instanceof GoogleRobotCredentials && matches((GoogleRobotCredentials) stored)) {
+                        return (GoogleRobotCredentials) stored;
+                    }
+                }
+            }
+            return null;
+        }
+
+        private boolean matches(GoogleRobotCredentials current) {
+            return current.getId().equals(id)
+                    && current.getClass() == type
+                    && Objects.equals(fingerprint, current.getTokenCacheFingerprint());
+        }
+
+        /** The original credential, null for handles bound to a channel. */
+        @CheckForNull
+        private final GoogleRobotCredentials credentials;
+
+        private final Class<?> type;
+        private final String id;
+
+        @CheckForNull
+        private final String fingerprint;
+
+        private final GoogleOAuth2ScopeRequirement requirement;
+        private final TokenClock clock;
+
+        /** The channel this handle may be presented over, null for use within the controller only. */
+        @CheckForNull
+        private final Channel channel;
+
+        /** The store the credential was last found in, see {@link #resolve}. */
+        @CheckForNull
+        private volatile CredentialsStore store;
+    }
+
+    /** The latest token an agent received for a handle, and when it did. */
+    private static final class Received {
+        Received(Token token) {
+            this.token = token;
+            this.receivedAt = token.getClock().currentTimeMillis();
+        }
+
+        boolean isRecent() {
+            return token.getClock().currentTimeMillis() - receivedAt < RETRY_INTERVAL_MILLIS;
+        }
+
+        private final Token token;
+        private final long receivedAt;
+    }
+
+    /**
+     * Handles are dropped this long after they were registered, however often they were used. Work
+     * that runs for longer has to remote its credential again to keep getting fresh tokens.
+     */
+    private static final long REGISTRATION_TIMEOUT_HOURS = 24;
+
+    /** The maximum number of handles the controller keeps. */
+    private static final long MAX_REGISTRATIONS = 10000;
+
+    /** Do not ask the controller again for the same handle within this interval. */
+    private static final long RETRY_INTERVAL_MILLIS = 30 * 1000L;
+
+    /** The maximum number of handles an agent keeps the latest token for. */
+    private static final long MAX_RECEIVED = 1000;
+
+    /** Controller side: the registered handles. */
+    private static final Cache<String, Registration> REGISTRATIONS = CacheBuilder.newBuilder()
+            .expireAfterWrite(REGISTRATION_TIMEOUT_HOURS, TimeUnit.HOURS)
+            .maximumSize(MAX_REGISTRATIONS)
+            .build();
+
+    /**
+     * Controller side: per channel, the handle bound to it for each handle registered by {@link
+     * #register}. Channels are compared by identity, and dropped once closed.
+     */
+    private static final Cache<Channel, ConcurrentMap<String, String>> BOUND =
+            CacheBuilder.newBuilder().weakKeys().build();
+
+    /** Agent side: the latest token per handle, shared by all copies of a remotable credential. */
+    private static final Cache<String, Received> LATEST = CacheBuilder.newBuilder()
+            .expireAfterWrite(1, TimeUnit.HOURS)
+            .maximumSize(MAX_RECEIVED)
+            .build();
+
+    /** Agent side: the refresh currently in flight per handle. */
+    private static final ConcurrentMap<String, CompletableFuture<Token>> IN_FLIGHT = new ConcurrentHashMap<>();
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.jenkins.plugins.credentials.oauth;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableSortedSet;
+import java.io.Serializable;
+import java.util.Iterator;
+
+/**
+ * The canonical form of a set of OAuth 2.0 scopes. Scopes are trimmed, de-duplicated and sorted, so
+ * two requirements asking for the same scopes in a different order (or with duplicates) produce
+ * equal {@link ScopeSet}s. Instances are immutable and cache their hash code, which makes them
+ * suitable as keys for anything that is cached per set of scopes, such as access tokens.
+ */
+public final class ScopeSet implements Iterable<String>, Serializable {
+    private static final ScopeSet EMPTY = new ScopeSet(ImmutableSortedSet.of());
+
+    private final ImmutableSortedSet<String> scopes;
+
+    /** Lazily computed, {@code 0} until first requested. */
+    private transient int hashCode;
+
+    private ScopeSet(ImmutableSortedSet<String> scopes) {
+        this.scopes = scopes;
+    }
+
+    /**
+     * Canonicalizes the given scopes.
+     *
+     * @param scopes The scopes to canonicalize, may be null or contain null or blank entries, which
+     *     are dropped.
+     * @return the canonical set of scopes.
+     */
+    public static ScopeSet of(Iterable<String> scopes) {
+        if (scopes == null) {
+            return EMPTY;
+        }
+        if (scopes instanceof ScopeSet) {
+            return (ScopeSet) scopes;
+        }
+        ImmutableSortedSet.Builder<String> builder = ImmutableSortedSet.naturalOrder();
+        for (String scope : scopes) {
+            String trimmed = Strings.nullToEmpty(scope).trim();
+            if (!trimmed.isEmpty()) {
+                builder.add(trimmed);
+            }
+        }
+        ImmutableSortedSet<String> canonical = builder.build();
+        return canonical.isEmpty() ? EMPTY : new ScopeSet(canonical);
+    }
+
+    /**
+     * Retrieves the canonical set of scopes of the given requirement.
+     *
+     * @param requirement The requirement whose scopes to canonicalize, may be null.
+     * @return the canonical set of scopes, empty for a null requirement.
+     */
+    public static ScopeSet of(OAuth2ScopeRequirement requirement) {
+        if (requirement == null) {
+            return EMPTY;
+        }
+        if (requirement instanceof GoogleOAuth2ScopeRequirement) {
+            // Computed once per requirement.
+            return ((GoogleOAuth2ScopeRequirement) requirement).getScopeSet();
+        }
+        return of(requirement.getScopes());
+    }
+
+    /** @return the number of distinct scopes in this set. */
+    public int size() {
+        return scopes.size();
+    }
+
+    /** @return whether this set contains no scopes. */
+    public boolean isEmpty() {
+        return scopes.isEmpty();
+    }
+
+    /** @return whether this set contains the given scope. */
+    public boolean contains(String scope) {
+        return scope != null && scopes.contains(scope.trim());
+    }
+
+    /**
+     * A token granted for a superset of scopes is also good for any of its subsets, so this is the
+     * check that decides whether something obtained for {@code this} may serve {@code other}.
+     *
+     * @param other The set of scopes to check.
+     * @return whether every scope in {@code other} is also contained in this set.
+     */
+    public boolean containsAll(ScopeSet other) {
+        return this == checkNotNull(other) || scopes.containsAll(other.scopes);
+    }
+
+    /**
+     * @param other The set of scopes to merge with this set.
+     * @return the set of scopes contained in either this set or {@code other}.
+     */
+    public ScopeSet union(ScopeSet other) {
+        if (containsAll(other)) {
+            return this;
+        }
+        if (other.containsAll(this)) {
+            return other;
+        }
+        return new ScopeSet(ImmutableSortedSet.<String>naturalOrder()
+                .addAll(scopes)
+                .addAll(other.scopes)
+                .build());
+    }
+
+    /** @return the sorted, de-duplicated scopes as an immutable set. */
+    public ImmutableSortedSet<String> asSet() {
+        return scopes;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Iterator<String> iterator() {
+        return scopes.iterator();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ScopeSet)) {
+            return false;
+        }
+        ScopeSet other = (ScopeSet) o;
+        return hashCode() == other.hashCode() && scopes.equals(other.scopes);
+    }
+
+    @Override
+    public int hashCode() {
+        int h = hashCode;
+        if (h == 0) {
+            h = scopes.hashCode();
+            hashCode = h;
+        }
+        return h;
+    }
+
+    /** @return the scopes, space separated as in an OAuth 2.0 {@code scope} parameter. */
+    @Override
+    public String toString() {
+        return Joiner.on(' ').join(scopes);
+    }
+
+    private Object readResolve() {
+        return scopes.isEmpty() ? EMPTY : this;
+    }
+
+    /** For {@link Serializable} */
+    private static final long serialVersionUID = 1L;
+}
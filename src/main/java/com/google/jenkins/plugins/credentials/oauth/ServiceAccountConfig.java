@@ -17,6 +17,7 @@ package com.google.jenkins.plugins.credentials.oauth;
 
 import com.cloudbees.plugins.credentials.SecretBytes;
 import com.google.common.base.Strings;
+import com.google.common.hash.Hashing;
 import edu.umd.cs.findbugs.annotations.CheckForNull;
 import hudson.model.Describable;
 import java.io.File;
@@ -40,6 +41,61 @@ public abstract class ServiceAccountConfig implements Describable<ServiceAccount
 
     public abstract PrivateKey getPrivateKey();
 
+    /**
+     * Reads the key file referenced by a configuration created with a version &lt; 0.7, see {@link
+     * LegacyKeyMigration}. Does nothing if there is none or it was already read.
+     */
+    void migrateLegacyKeyFile() {}
+
+    /**
+     * Identifies the key material of this configuration without revealing it, see {@link
+     * GoogleRobotCredentials#getTokenCacheFingerprint}.
+     *
+     * @return a value that changes whenever the key material does, or null if there is none.
+     */
+    @CheckForNull
+    String getKeyFingerprint() {
+        return null;
+    }
+
+    /** @return a digest of the encrypted form of the given key, or null if there is none. */
+    @CheckForNull
+    static String fingerprint(@CheckForNull SecretBytes key) {
+        if (key == null) {
+            return null;
+        }
+        return Hashing.sha256().hashBytes(key.getEncryptedData()).toString();
+    }
+
+    /**
+     * Checks whether the given key holds any data, without decrypting it unless its encrypted form is
+     * as short as that of no data at all. AES pads to whole blocks, so that only happens for keys of
+     * less than a block, which no real key is.
+     *
+     * @return whether the key is null or empty.
+     */
+    static boolean isEmpty(@CheckForNull SecretBytes key) {
+        if (key == null) {
+            return true;
+        }
+        if (key.getEncryptedData().length > getEmptyEncryptedLength()) {
+            return false;
+        }
+        return key.getPlainData().length == 0;
+    }
+
+    private static int getEmptyEncryptedLength() {
+        int length = emptyEncryptedLength;
+        if (length == 0) {
+            length = SecretBytes.fromBytes(new byte[0]).getEncryptedData().length;
+            emptyEncryptedLength = length;
+        }
+        return length;
+    }
+
+    /** The length of the encrypted form of no data, computed on first use. */
+    private static volatile int emptyEncryptedLength;
+
     @Deprecated // Used only for compatibility purposes.
     @CheckForNull
     protected SecretBytes getSecretBytesFromFile(@CheckForNull String filePath) {
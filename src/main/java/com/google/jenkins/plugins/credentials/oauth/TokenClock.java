@@ -0,0 +1,65 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.jenkins.plugins.credentials.oauth;
+
+import com.google.api.client.util.Clock;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The clock behind every access token expiry decision of these credentials, see {@link
+ * GoogleRobotCredentialsModule#getTokenClock}.
+ *
+ * <p>Readings are milliseconds on the scale of the epoch, so that they line up with the expirations
+ * reported along with access tokens, but the {@link #system} clock only advances with {@link
+ * System#nanoTime}: it is anchored to the wall clock once, and later adjustments of the wall clock,
+ * e.g. an agent catching up with NTP, do not move token expirations. The clocks of two JVMs need not
+ * agree, so only remaining lifetimes travel between them, see {@link #lifetimeMillis} and {@link
+ * #expirationIn}.
+ */
+public abstract class TokenClock implements Clock {
+    /** @return the clock used unless a {@link GoogleRobotCredentialsModule} says otherwise. */
+    public static TokenClock system() {
+        return SYSTEM;
+    }
+
+    /** @return the current time, in milliseconds on the scale of the epoch. */
+    @Override
+    public abstract long currentTimeMillis();
+
+    /** @return the time, on this clock, that lies the given number of milliseconds from now. */
+    public final long expirationIn(long lifetimeMillis) {
+        return currentTimeMillis() + lifetimeMillis;
+    }
+
+    /** @return the number of milliseconds from now until the given time on this clock. */
+    public final long lifetimeMillis(long expiration) {
+        return expiration - currentTimeMillis();
+    }
+
+    /** Reads the wall clock once, and {@link System#nanoTime} from then on. */
+    private static final class SystemClock extends TokenClock {
+        /** {@inheritDoc} */
+        @Override
+        public long currentTimeMillis() {
+            return originMillis + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - originNanos);
+        }
+
+        private final long originNanos = System.nanoTime();
+        private final long originMillis = System.currentTimeMillis();
+    }
+
+    private static final TokenClock SYSTEM = new SystemClock();
+}
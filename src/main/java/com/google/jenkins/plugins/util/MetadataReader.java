@@ -25,11 +25,22 @@ import com.google.api.client.http.HttpRequest;
 import com.google.api.client.http.HttpRequestFactory;
 import com.google.api.client.http.HttpResponse;
 import com.google.api.client.http.HttpResponseException;
+import com.google.api.client.http.HttpTransport;
 import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.client.json.GenericJson;
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.jackson2.JacksonFactory;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Charsets;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.StringWriter;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import jenkins.util.SystemProperties;
 import org.apache.commons.io.IOUtils;
 
 /**
@@ -53,10 +64,95 @@ public interface MetadataReader {
      */
     String readMetadata(String metadataPath) throws IOException, ExecutorException;
 
-    /** A simple default implementation that reads metadata via http requests. */
+    /**
+     * Opens the specified sub-element like {@link #readMetadata}, but hands out its content as a
+     * stream, so that large values, such as attributes, can be consumed without being copied into a
+     * string first. The caller must close the stream.
+     *
+     * @param metadataPath The path of the sub-element, see {@link #readMetadata}.
+     * @return the UTF-8 encoded content of the sub-element.
+     */
+    default InputStream openMetadata(String metadataPath) throws IOException, ExecutorException {
+        return new ByteArrayInputStream(readMetadata(metadataPath).getBytes(Charsets.UTF_8));
+    }
+
+    /**
+     * Reads the specified sub-element like {@link #readMetadata}, but if {@code lastEtag} is given,
+     * waits until the value no longer has that ETag, i.e. until it changed, or until the metadata
+     * server gives up waiting. Lets callers keep a value up to date with a single long-lived request
+     * instead of polling for it.
+     *
+     * <p>Readers that cannot watch return the current value without an ETag, callers should stop
+     * watching then. This is what the default implementation does.
+     *
+     * @param metadataPath The path of the sub-element, see {@link #readMetadata}.
+     * @param lastEtag The ETag of the value last seen, or null to return the current value at once.
+     * @return the current value along with its ETag.
+     */
+    default Versioned<String> watchMetadata(String metadataPath, @CheckForNull String lastEtag)
+            throws IOException, ExecutorException {
+        return new Versioned<>(readMetadata(metadataPath), null);
+    }
+
+    /**
+     * Reads the whole tree of values below the specified directory in a single request, e.g. the
+     * email and scopes of a service account at once. Keys are named as in the metadata server's JSON
+     * representation, which uses camel case, e.g. {@code projectId} for {@code project-id}.
+     *
+     * @param directoryPath The path of the directory, see {@link #readMetadata}.
+     * @return the values below the directory, nested directories as nested maps.
+     */
+    default Map<String, Object> readMetadataTree(String directoryPath) throws IOException, ExecutorException {
+        return watchMetadataTree(directoryPath, null).getValue();
+    }
+
+    /**
+     * Reads the whole tree of values below the specified directory like {@link #readMetadataTree},
+     * waiting for any of them to change like {@link #watchMetadata}.
+     */
+    default Versioned<Map<String, Object>> watchMetadataTree(String directoryPath, @CheckForNull String lastEtag)
+            throws IOException, ExecutorException {
+        String json = readMetadata(directoryPath + "?recursive=true");
+        GenericJson tree = new JacksonFactory().fromString(json, GenericJson.class);
+        return new Versioned<>(Collections.unmodifiableMap(tree), null);
+    }
+
+    /**
+     * A metadata value along with the ETag identifying its version, see {@link #watchMetadata}.
+     *
+     * @param <T> The type of the value.
+     */
+    public static final class Versioned<T> {
+        public Versioned(T value, @CheckForNull String etag) {
+            this.value = checkNotNull(value);
+            this.etag = etag;
+        }
+
+        /** @return the value read. */
+        public T getValue() {
+            return value;
+        }
+
+        /** @return the ETag of the value, or null if the reader cannot watch it. */
+        @CheckForNull
+        public String getEtag() {
+            return etag;
+        }
+
+        private final T value;
+
+        @CheckForNull
+        private final String etag;
+    }
+
+    /**
+     * A simple default implementation that reads metadata via http requests. Unless given a request
+     * factory, all instances share one transport, so that connections to the metadata server are
+     * reused, with short timeouts suited to a server on the local link.
+     */
     public static class Default implements MetadataReader {
         public Default() {
-            this(new NetHttpTransport().createRequestFactory());
+            this(TRANSPORT.createRequestFactory(Default::initialize));
         }
 
         public Default(HttpRequestFactory requestFactory) {
@@ -68,15 +164,75 @@ public interface MetadataReader {
         /** {@inheritDoc} */
         @Override
         public String readMetadata(String metadataPath) throws IOException, ExecutorException {
+            return readContent(execute(buildRequest(metadataPath)));
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * <p>Content larger than {@link #MAX_CONTENT_BYTES} fails with an {@link IOException} once
+         * read that far.
+         */
+        @Override
+        public InputStream openMetadata(String metadataPath) throws IOException, ExecutorException {
+            return openContent(execute(buildRequest(metadataPath)));
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public Versioned<String> watchMetadata(String metadataPath, @CheckForNull String lastEtag)
+                throws IOException, ExecutorException {
+            HttpRequest request = buildRequest(metadataPath);
+            waitForChange(request, lastEtag);
+            HttpResponse response = execute(request);
+            String etag = response.getHeaders().getETag();
+            return new Versioned<>(readContent(response), etag);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public Versioned<Map<String, Object>> watchMetadataTree(String directoryPath, @CheckForNull String lastEtag)
+                throws IOException, ExecutorException {
+            HttpRequest request = buildRequest(directoryPath);
+            request.getUrl().set("recursive", true);
+            waitForChange(request, lastEtag);
+            HttpResponse response = execute(request);
+            String etag = response.getHeaders().getETag();
+            try (InputStream content = openContent(response)) {
+                GenericJson tree = JSON_FACTORY.createJsonParser(content, Charsets.UTF_8).parse(GenericJson.class);
+                return new Versioned<>(Collections.unmodifiableMap(tree), etag);
+            }
+        }
+
+        private static void waitForChange(HttpRequest request, @CheckForNull String lastEtag) {
+            if (lastEtag != null) {
+                request.getUrl().set("wait_for_change", true);
+                request.getUrl().set("last_etag", lastEtag);
+                request.getUrl().set("timeout_sec", WATCH_TIMEOUT_SECONDS);
+                // The metadata server only answers once the value changed or the wait timed out.
+                request.setReadTimeout((int) TimeUnit.SECONDS.toMillis(WATCH_TIMEOUT_SECONDS + WATCH_TIMEOUT_SLACK));
+            }
+        }
+
+        private HttpRequest buildRequest(String metadataPath) throws IOException {
             HttpRequest request = requestFactory.buildGetRequest(new GenericUrl(METADATA_SERVER + metadataPath));
 
             // GCE v1 requires requests to the metadata service to specify
             // this header in order to get anything back.
             request.getHeaders().set("Metadata-Flavor", "Google");
+            return request;
+        }
+
+        /** Applies the timeouts of requests made through the shared transport. */
+        @VisibleForTesting
+        static void initialize(HttpRequest request) {
+            request.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+            request.setReadTimeout(READ_TIMEOUT_MILLIS);
+        }
 
-            HttpResponse response;
+        private static HttpResponse execute(HttpRequest request) throws IOException, ExecutorException {
             try {
-                response = request.execute();
+                return request.execute();
             } catch (HttpResponseException e) {
                 switch (e.getStatusCode()) {
                     case STATUS_CODE_UNAUTHORIZED:
@@ -88,13 +244,64 @@ public interface MetadataReader {
                         throw e;
                 }
             }
+        }
+
+        private static String readContent(HttpResponse response) throws IOException {
+            try (InputStream content = openContent(response)) {
+                // Decoded at once, instead of being copied through a reader and a writer.
+                return new String(IOUtils.toByteArray(content), Charsets.UTF_8);
+            }
+        }
+
+        private static InputStream openContent(HttpResponse response) throws IOException {
+            return new CappedInputStream(checkNotNull(response.getContent()), MAX_CONTENT_BYTES);
+        }
+
+        /** Fails instead of reading more than a given number of bytes. */
+        private static final class CappedInputStream extends FilterInputStream {
+            CappedInputStream(InputStream in, long remaining) {
+                super(in);
+                this.remaining = remaining;
+            }
+
+            @Override
+            public int read() throws IOException {
+                int read = super.read();
+                if (read != -1) {
+                    consumed(1);
+                }
+                return read;
+            }
 
-            try (InputStreamReader inChars =
-                    new InputStreamReader(checkNotNull(response.getContent()), Charsets.UTF_8)) {
-                StringWriter output = new StringWriter();
-                IOUtils.copy(inChars, output);
-                return output.toString();
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int read = super.read(b, off, len);
+                if (read > 0) {
+                    consumed(read);
+                }
+                return read;
             }
+
+            @Override
+            public long skip(long n) throws IOException {
+                long skipped = super.skip(n);
+                consumed(skipped);
+                return skipped;
+            }
+
+            @Override
+            public boolean markSupported() {
+                return false;
+            }
+
+            private void consumed(long count) throws IOException {
+                remaining -= count;
+                if (remaining < 0) {
+                    throw new IOException("The metadata is larger than " + MAX_CONTENT_BYTES + " bytes");
+                }
+            }
+
+            private long remaining;
         }
 
         /** {@inheritDoc} */
@@ -113,5 +320,31 @@ public interface MetadataReader {
          * the default service account.
          */
         public static final String METADATA_SERVER = "http://metadata/computeMetadata/v1";
+
+        private static final JsonFactory JSON_FACTORY = new JacksonFactory();
+
+        /** The most content read from the metadata server for a single request. */
+        @VisibleForTesting
+        static final int MAX_CONTENT_BYTES =
+                SystemProperties.getInteger(Default.class.getName() + ".maxContentBytes", 1024 * 1024);
+
+        /** Shared by all instances that were not given a request factory, it pools the connections. */
+        private static final HttpTransport TRANSPORT = new NetHttpTransport();
+
+        /** How long connecting to the metadata server may take, which is on the local link. */
+        @VisibleForTesting
+        static final int CONNECT_TIMEOUT_MILLIS =
+                SystemProperties.getInteger(Default.class.getName() + ".connectTimeoutMillis", 1000);
+
+        /** How long the metadata server may take to answer, except when waiting for a change. */
+        @VisibleForTesting
+        static final int READ_TIMEOUT_MILLIS =
+                SystemProperties.getInteger(Default.class.getName() + ".readTimeoutMillis", 5000);
+
+        /** How long the metadata server is asked to wait for a change before answering anyway. */
+        private static final long WATCH_TIMEOUT_SECONDS = 300;
+
+        /** Leaves the metadata server some time to answer once the wait timed out. */
+        private static final long WATCH_TIMEOUT_SLACK = 10;
     }
 }
@@ -15,14 +15,21 @@
  */
 package com.google.jenkins.plugins;
 
+import com.google.jenkins.plugins.credentials.oauth.AccessTokenCacheTest;
 import com.google.jenkins.plugins.credentials.oauth.ConfigurationAsCodeTest;
 import com.google.jenkins.plugins.credentials.oauth.GoogleOAuth2ScopeSpecificationTest;
 import com.google.jenkins.plugins.credentials.oauth.GoogleRobotCredentialsTest;
 import com.google.jenkins.plugins.credentials.oauth.GoogleRobotMetadataCredentialsTest;
 import com.google.jenkins.plugins.credentials.oauth.GoogleRobotPrivateKeyCredentialsTest;
+import com.google.jenkins.plugins.credentials.oauth.JsonKeyTest;
 import com.google.jenkins.plugins.credentials.oauth.JsonServiceAccountConfigTest;
+import com.google.jenkins.plugins.credentials.oauth.KeyMaterialTest;
+import com.google.jenkins.plugins.credentials.oauth.LegacyKeyMigrationMonitorTest;
+import com.google.jenkins.plugins.credentials.oauth.MetadataCacheTest;
 import com.google.jenkins.plugins.credentials.oauth.P12ServiceAccountConfigTest;
 import com.google.jenkins.plugins.credentials.oauth.RemotableGoogleCredentialsTest;
+import com.google.jenkins.plugins.credentials.oauth.ScopeSetTest;
+import com.google.jenkins.plugins.credentials.oauth.TokenClockTest;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 
@@ -30,13 +37,20 @@ import org.junit.runners.Suite;
 @RunWith(Suite.class)
 @Suite.SuiteClasses(
         value = {
+            AccessTokenCacheTest.class,
             ConfigurationAsCodeTest.class,
             GoogleOAuth2ScopeSpecificationTest.class,
             GoogleRobotCredentialsTest.class,
             GoogleRobotMetadataCredentialsTest.class,
             GoogleRobotPrivateKeyCredentialsTest.class,
+            JsonKeyTest.class,
             JsonServiceAccountConfigTest.class,
+            KeyMaterialTest.class,
+            LegacyKeyMigrationMonitorTest.class,
+            MetadataCacheTest.class,
             P12ServiceAccountConfigTest.class,
-            RemotableGoogleCredentialsTest.class
+            RemotableGoogleCredentialsTest.class,
+            ScopeSetTest.class,
+            TokenClockTest.class
         })
 public class CredentialsOAuthTestSuite {}
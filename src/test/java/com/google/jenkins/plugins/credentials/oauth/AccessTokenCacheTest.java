@@ -0,0 +1,238 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.jenkins.plugins.credentials.oauth;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.cloudbees.plugins.credentials.CredentialsScope;
+import com.google.api.client.auth.oauth2.Credential;
+import com.google.api.client.googleapis.auth.oauth2.GoogleCredential;
+import hudson.util.Secret;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.time.Instant;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.WithoutJenkins;
+
+/** Tests for {@link AccessTokenCache}. */
+public class AccessTokenCacheTest {
+    private static final String ID = "the-id";
+    private static final String PROJECT_ID = "foo.com:bar-baz";
+    private static final String ACCESS_TOKEN = "ThE.ToKeN";
+    private static final String FINGERPRINT = "fingerprint";
+    private static final ScopeSet SCOPES = ScopeSet.of(new TestGoogleOAuth2DomainRequirement("scope"));
+    private static final ScopeSet OTHER_SCOPES = ScopeSet.of(new TestGoogleOAuth2DomainRequirement("other"));
+
+    // Needed for the encryption of the persisted tokens.
+    @Rule
+    public JenkinsRule jenkins = new JenkinsRule();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /** Lets the tests choose the id and fingerprint. */
+    private static class FingerprintedCredentials extends GoogleRobotCredentials {
+        FingerprintedCredentials(String id, String fingerprint) {
+            super(CredentialsScope.GLOBAL, id, PROJECT_ID, null, new GoogleRobotCredentialsModule());
+            this.fingerprint = fingerprint;
+        }
+
+        @Override
+        public Credential getGoogleCredential(GoogleOAuth2ScopeRequirement requirement) {
+            return new GoogleCredential();
+        }
+
+        @Override
+        public String getUsername() {
+            return "username";
+        }
+
+        @Override
+        String getTokenCacheFingerprint() {
+            return fingerprint;
+        }
+
+        private final String fingerprint;
+    }
+
+    private File store;
+
+    @Before
+    public void setUp() throws Exception {
+        store = new File(folder.getRoot(), "token-cache");
+    }
+
+    private static AccessToken newToken(int lifetimeSeconds) {
+        return new AccessToken(Secret.fromString(ACCESS_TOKEN), Instant.now().plusSeconds(lifetimeSeconds), SCOPES);
+    }
+
+    @Test
+    @WithoutJenkins
+    public void testLookup() throws Exception {
+        AccessTokenCache cache = new AccessTokenCache(null);
+        FingerprintedCredentials credentials = new FingerprintedCredentials(ID, FINGERPRINT);
+
+        assertNull(cache.lookup(credentials, SCOPES, Duration.ofSeconds(180)));
+        AccessToken token = newToken(3600);
+        cache.put(credentials, SCOPES, token);
+
+        // The very same token, nothing is wrapped again.
+        assertSame(token, cache.lookup(credentials, SCOPES, Duration.ofSeconds(180)));
+        assertNull(cache.lookup(credentials, OTHER_SCOPES, Duration.ofSeconds(180)));
+        // Another instance with the same id, e.g. after the credential was updated.
+        assertNull(cache.lookup(new FingerprintedCredentials(ID, FINGERPRINT), SCOPES, Duration.ofSeconds(180)));
+        // Not enough time left.
+        assertNull(cache.lookup(credentials, SCOPES, Duration.ofSeconds(3601)));
+    }
+
+    @Test
+    @WithoutJenkins
+    public void testExpiredDropped() throws Exception {
+        AccessTokenCache cache = new AccessTokenCache(null);
+        FingerprintedCredentials credentials = new FingerprintedCredentials(ID, FINGERPRINT);
+        AccessToken token = newToken(-60);
+        cache.put(credentials, SCOPES, token);
+
+        assertNull(cache.lookup(credentials, SCOPES, Duration.ofSeconds(0)));
+        assertEquals(0, cache.getStats().hitCount());
+        // Gone, rather than found again and rejected again.
+        assertNull(cache.lookup(credentials, SCOPES, Duration.ofSeconds(0)));
+        assertEquals(0, cache.getStats().hitCount());
+    }
+
+    @Test
+    @WithoutJenkins
+    public void testFailure() throws Exception {
+        AccessTokenCache cache = new AccessTokenCache(null);
+        FingerprintedCredentials credentials = new FingerprintedCredentials(ID, FINGERPRINT);
+        GeneralSecurityException failure = new GeneralSecurityException("revoked");
+
+        assertNull(cache.lookupFailure(credentials, SCOPES));
+        cache.putFailure(credentials, SCOPES, failure);
+        assertSame(failure, cache.lookupFailure(credentials, SCOPES));
+        assertNull(cache.lookupFailure(credentials, OTHER_SCOPES));
+        assertEquals(1, cache.getFailureStats().hitCount());
+
+        // A token obtained after all clears the failure.
+        cache.put(credentials, SCOPES, newToken(3600));
+        assertNull(cache.lookupFailure(credentials, SCOPES));
+    }
+
+    @Test
+    @WithoutJenkins
+    public void testDescribeStats() throws Exception {
+        AccessTokenCache cache = new AccessTokenCache(null);
+        FingerprintedCredentials credentials = new FingerprintedCredentials(ID, FINGERPRINT);
+
+        assertNull(cache.lookup(credentials, SCOPES, Duration.ofSeconds(180)));
+        assertNull(cache.lookupFailure(credentials, SCOPES));
+        assertEquals(
+                "Access token cache: 0 hits, 1 misses, 0 evictions; failure cache: 0 hits, 1 misses",
+                cache.describeStats());
+
+        cache.put(credentials, SCOPES, newToken(3600));
+        assertNotNull(cache.lookup(credentials, SCOPES, Duration.ofSeconds(180)));
+        cache.putFailure(credentials, OTHER_SCOPES, new GeneralSecurityException("revoked"));
+        assertNotNull(cache.lookupFailure(credentials, OTHER_SCOPES));
+        assertEquals(
+                "Access token cache: 1 hits, 1 misses, 0 evictions; failure cache: 1 hits, 1 misses",
+                cache.describeStats());
+    }
+
+    @Test
+    @WithoutJenkins
+    public void testMaximumSize() throws Exception {
+        AccessTokenCache cache = new AccessTokenCache(null, 2);
+        FingerprintedCredentials credentials = new FingerprintedCredentials(ID, FINGERPRINT);
+        for (int i = 0; i < 10; i++) {
+            // Ever new combinations of scopes do not grow the cache.
+            cache.put(credentials, ScopeSet.of(new TestGoogleOAuth2DomainRequirement("scope" + i)), newToken(3600));
+        }
+        assertTrue(cache.getStats().evictionCount() >= 8);
+    }
+
+    @Test
+    public void testPersisted() throws Exception {
+        FingerprintedCredentials credentials = new FingerprintedCredentials(ID, FINGERPRINT);
+        AccessTokenCache cache = new AccessTokenCache(store);
+        cache.put(credentials, SCOPES, newToken(3600));
+        cache.save();
+
+        String persisted = new String(Files.readAllBytes(store.toPath()), StandardCharsets.UTF_8);
+        assertFalse(persisted.contains(ACCESS_TOKEN));
+
+        // As if after a restart, the same credential is a new instance.
+        AccessTokenCache restarted = new AccessTokenCache(store);
+        FingerprintedCredentials reloaded = new FingerprintedCredentials(ID, FINGERPRINT);
+        AccessToken token = restarted.lookup(reloaded, SCOPES, Duration.ofSeconds(180));
+        assertNotNull(token);
+        assertEquals(ACCESS_TOKEN, Secret.toString(token.getValue()));
+        assertEquals(SCOPES, token.getScopes());
+
+        // Handed out once only.
+        assertNull(restarted.lookup(new FingerprintedCredentials(ID, FINGERPRINT), SCOPES, Duration.ofSeconds(180)));
+    }
+
+    @Test
+    public void testPersistedOtherKey() throws Exception {
+        FingerprintedCredentials credentials = new FingerprintedCredentials(ID, FINGERPRINT);
+        AccessTokenCache cache = new AccessTokenCache(store);
+        cache.put(credentials, SCOPES, newToken(3600));
+        cache.save();
+
+        // Same id, but the key was replaced.
+        FingerprintedCredentials replaced = new FingerprintedCredentials(ID, "other");
+        assertNull(new AccessTokenCache(store).lookup(replaced, SCOPES, Duration.ofSeconds(180)));
+    }
+
+    @Test
+    public void testNotPersistedWithoutFingerprint() throws Exception {
+        FingerprintedCredentials credentials = new FingerprintedCredentials(ID, null);
+        AccessTokenCache cache = new AccessTokenCache(store);
+        cache.put(credentials, SCOPES, newToken(3600));
+        cache.save();
+
+        FingerprintedCredentials reloaded = new FingerprintedCredentials(ID, null);
+        assertNull(new AccessTokenCache(store).lookup(reloaded, SCOPES, Duration.ofSeconds(180)));
+    }
+
+    @Test
+    public void testUnfingerprintedPutAfterRestartKeepsPersisted() throws Exception {
+        AccessTokenCache cache = new AccessTokenCache(store);
+        cache.put(new FingerprintedCredentials(ID, FINGERPRINT), SCOPES, newToken(3600));
+        cache.save();
+
+        // After a restart, only a credential that is not persisted fetches a token before the next save.
+        AccessTokenCache restarted = new AccessTokenCache(store);
+        restarted.put(new FingerprintedCredentials("other", null), SCOPES, newToken(3600));
+        restarted.save();
+
+        FingerprintedCredentials reloaded = new FingerprintedCredentials(ID, FINGERPRINT);
+        assertNotNull(new AccessTokenCache(store).lookup(reloaded, SCOPES, Duration.ofSeconds(180)));
+    }
+}
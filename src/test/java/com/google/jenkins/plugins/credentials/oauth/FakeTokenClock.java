@@ -0,0 +1,56 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.jenkins.plugins.credentials.oauth;
+
+import java.time.Duration;
+
+/** A {@link TokenClock} that only moves when a test tells it to. */
+public class FakeTokenClock extends TokenClock {
+    public FakeTokenClock() {
+        this.millis = System.currentTimeMillis();
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return millis;
+    }
+
+    public void advance(Duration duration) {
+        millis += duration.toMillis();
+    }
+
+    /** @return a module that tracks token expirations on this clock. */
+    public GoogleRobotCredentialsModule module() {
+        return new Module(this);
+    }
+
+    private static class Module extends GoogleRobotCredentialsModule {
+        Module(FakeTokenClock clock) {
+            this.clock = clock;
+        }
+
+        @Override
+        public TokenClock getTokenClock() {
+            return clock;
+        }
+
+        private final transient FakeTokenClock clock;
+
+        private static final long serialVersionUID = 1L;
+    }
+
+    private volatile long millis;
+}
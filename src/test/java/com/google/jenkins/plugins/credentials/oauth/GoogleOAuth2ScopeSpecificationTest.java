@@ -87,6 +87,26 @@ public class GoogleOAuth2ScopeSpecificationTest {
         assertEquals(Result.NEGATIVE, spec.test(badReq));
     }
 
+    @Test
+    @WithoutJenkins
+    public void testCanonicalScopes() throws Exception {
+        GoogleOAuth2ScopeSpecification spec =
+                new GoogleOAuth2ScopeSpecification(ImmutableList.of(GOOD_SCOPE2, GOOD_SCOPE1, GOOD_SCOPE2));
+
+        GoogleOAuth2ScopeRequirement reordered = new GoogleOAuth2ScopeRequirement() {
+            @Override
+            public Collection<String> getScopes() {
+                return ImmutableList.of(GOOD_SCOPE2, GOOD_SCOPE1);
+            }
+        };
+        GoogleOAuth2ScopeRequirement subset = new TestGoogleOAuth2DomainRequirement(GOOD_SCOPE1);
+
+        assertEquals(ScopeSet.of(GOOD_SCOPES), spec.getSpecifiedScopeSet());
+        assertEquals(ScopeSet.of(GOOD_SCOPES), reordered.getScopeSet());
+        assertEquals(Result.POSITIVE, spec.test(reordered));
+        assertEquals(Result.POSITIVE, spec.test(subset));
+    }
+
     private static String GOOD_SCOPE1 = "foo";
     private static String GOOD_SCOPE2 = "baz";
     private static String BAD_SCOPE = "bar";
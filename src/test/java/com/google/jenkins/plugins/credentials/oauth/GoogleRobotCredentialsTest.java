@@ -17,26 +17,52 @@ package com.google.jenkins.plugins.credentials.oauth;
 
 import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import com.cloudbees.plugins.credentials.CredentialsNameProvider;
+import com.cloudbees.plugins.credentials.CredentialsProvider;
 import com.cloudbees.plugins.credentials.CredentialsScope;
+import com.cloudbees.plugins.credentials.CredentialsStore;
 import com.cloudbees.plugins.credentials.NameWith;
 import com.cloudbees.plugins.credentials.SystemCredentialsProvider;
+import com.cloudbees.plugins.credentials.domains.Domain;
+import com.google.api.client.auth.oauth2.Credential;
 import com.google.api.client.googleapis.auth.oauth2.GoogleCredential;
 import com.google.common.collect.ImmutableList;
 import com.google.jenkins.plugins.credentials.domains.RequiresDomain;
+import hudson.BulkChange;
 import hudson.Extension;
 import hudson.model.Descriptor;
+import hudson.model.User;
+import hudson.remoting.VirtualChannel;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
 import hudson.util.ListBoxModel;
 import hudson.util.Secret;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.security.GeneralSecurityException;
+import java.time.Duration;
 import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import jenkins.security.MasterToSlaveCallable;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -72,7 +98,12 @@ public class GoogleRobotCredentialsTest {
     @RequiresDomain(value = TestRequirement.class)
     public static class FakeGoogleCredentials extends GoogleRobotCredentials {
         public FakeGoogleCredentials(String projectId, GoogleCredential credential) {
-            super(CredentialsScope.GLOBAL, "", projectId, new GoogleRobotCredentialsModule());
+            this(projectId, credential, new GoogleRobotCredentialsModule());
+        }
+
+        public FakeGoogleCredentials(
+                String projectId, GoogleCredential credential, GoogleRobotCredentialsModule module) {
+            super(CredentialsScope.GLOBAL, "", projectId, module);
 
             this.credential = credential;
         }
@@ -146,6 +177,27 @@ public class GoogleRobotCredentialsTest {
         assertEquals(ACCESS_TOKEN, Secret.toString(credentials.getAccessToken(null /* scope requirement */)));
     }
 
+    @Test
+    @WithoutJenkins
+    public void testGetAccessTokenCached() throws Exception {
+        FakeGoogleCredentials credentials = new FakeGoogleCredentials(PROJECT_ID, fakeCredential);
+
+        fakeCredential.setAccessToken(ACCESS_TOKEN);
+        fakeCredential.setExpiresInSeconds(EXPIRATION_SECONDS);
+        assertEquals(ACCESS_TOKEN, Secret.toString(credentials.getAccessToken(new TestRequirement())));
+
+        // The cached token is served while it has enough time left, as the very same Secret.
+        Secret cached = credentials.getAccessToken(new TestRequirement());
+        fakeCredential.setAccessToken("OtHeR");
+        assertEquals(ACCESS_TOKEN, Secret.toString(credentials.getAccessToken(new TestRequirement())));
+        assertSame(cached, credentials.getAccessToken(new TestRequirement()));
+
+        // Other scopes are not served the same token.
+        assertEquals(
+                "OtHeR",
+                Secret.toString(credentials.getAccessToken(new TestGoogleOAuth2DomainRequirement(OTHER_SCOPE))));
+    }
+
     @Test
     @WithoutJenkins
     public void testGetAccessTokenNoCredential() throws Exception {
@@ -154,6 +206,162 @@ public class GoogleRobotCredentialsTest {
         assertNull(credentials.getAccessToken(null));
     }
 
+    @Test
+    @WithoutJenkins
+    public void testGetGoogleAccessToken() throws Exception {
+        FakeGoogleCredentials credentials = new FakeGoogleCredentials(PROJECT_ID, fakeCredential);
+
+        fakeCredential.setAccessToken(ACCESS_TOKEN);
+        fakeCredential.setExpiresInSeconds(EXPIRATION_SECONDS);
+        AccessToken token = credentials.getGoogleAccessToken(new TestRequirement());
+
+        assertEquals(ACCESS_TOKEN, Secret.toString(token.getValue()));
+        assertEquals(ScopeSet.of(new TestRequirement()), token.getScopes());
+        assertFalse(token.expiresWithin(Duration.ofSeconds(EXPIRATION_SECONDS - 60)));
+        assertTrue(token.expiresWithin(Duration.ofSeconds(EXPIRATION_SECONDS + 60)));
+
+        // The cached token keeps its expiration.
+        assertEquals(token.getExpiration(), credentials.getGoogleAccessToken(new TestRequirement()).getExpiration());
+    }
+
+    @Test(expected = GeneralSecurityException.class)
+    @WithoutJenkins
+    public void testGetGoogleAccessTokenNoCredential() throws Exception {
+        FakeGoogleCredentials credentials = new FakeGoogleCredentials(PROJECT_ID, null /* credential */);
+
+        credentials.getGoogleAccessToken(null);
+    }
+
+    @Test
+    @WithoutJenkins
+    public void testGetGoogleAccessTokenFailureCached() throws Exception {
+        FakeGoogleCredentials credentials = new FakeGoogleCredentials(PROJECT_ID, null /* credential */);
+        assertNull(credentials.getAccessToken(new TestRequirement()));
+
+        // Even once the credential would work, the recent failure is reported again right away.
+        fakeCredential.setAccessToken(ACCESS_TOKEN);
+        fakeCredential.setExpiresInSeconds(EXPIRATION_SECONDS);
+        credentials.credential = fakeCredential;
+        try {
+            credentials.getGoogleAccessToken(new TestRequirement());
+            fail();
+        } catch (GeneralSecurityException e) {
+            assertEquals("asdf", e.getCause().getMessage());
+        }
+
+        // Other scopes are tried on their own.
+        assertEquals(
+                ACCESS_TOKEN,
+                Secret.toString(credentials.getAccessToken(new TestGoogleOAuth2DomainRequirement(OTHER_SCOPE))));
+    }
+
+    @Test
+    @WithoutJenkins
+    public void testGetGoogleAccessTokens() throws Exception {
+        FakeGoogleCredentials credentials = new FakeGoogleCredentials(PROJECT_ID, fakeCredential);
+
+        fakeCredential.setAccessToken(ACCESS_TOKEN);
+        fakeCredential.setExpiresInSeconds(EXPIRATION_SECONDS);
+        Map<ScopeSet, AccessToken> tokens = credentials.getGoogleAccessTokens(
+                ImmutableList.of(
+                        new TestRequirement(),
+                        new TestRequirement(),
+                        new TestGoogleOAuth2DomainRequirement(OTHER_SCOPE)),
+                false /* combineScopes */);
+
+        assertEquals(2, tokens.size());
+        AccessToken token = tokens.get(ScopeSet.of(new TestRequirement()));
+        assertEquals(ACCESS_TOKEN, Secret.toString(token.getValue()));
+        assertEquals(ScopeSet.of(new TestRequirement()), token.getScopes());
+        AccessToken otherToken = tokens.get(ScopeSet.of(ImmutableList.of(OTHER_SCOPE)));
+        assertEquals(ScopeSet.of(ImmutableList.of(OTHER_SCOPE)), otherToken.getScopes());
+    }
+
+    @Test
+    @WithoutJenkins
+    public void testGetGoogleAccessTokensCombined() throws Exception {
+        FakeGoogleCredentials credentials = new FakeGoogleCredentials(PROJECT_ID, fakeCredential);
+
+        fakeCredential.setAccessToken(ACCESS_TOKEN);
+        fakeCredential.setExpiresInSeconds(EXPIRATION_SECONDS);
+        Map<ScopeSet, AccessToken> tokens = credentials.getGoogleAccessTokens(
+                ImmutableList.of(new TestRequirement(), new TestGoogleOAuth2DomainRequirement(OTHER_SCOPE)),
+                true /* combineScopes */);
+
+        assertEquals(2, tokens.size());
+        AccessToken token = tokens.get(ScopeSet.of(new TestRequirement()));
+        assertSame(token, tokens.get(ScopeSet.of(ImmutableList.of(OTHER_SCOPE))));
+        assertEquals(ScopeSet.of(ImmutableList.of(FAKE_SCOPE, OTHER_SCOPE)), token.getScopes());
+    }
+
+    @Test
+    @WithoutJenkins
+    public void testGetAccessTokenAsync() throws Exception {
+        FakeGoogleCredentials credentials = new FakeGoogleCredentials(PROJECT_ID, fakeCredential);
+
+        fakeCredential.setAccessToken(ACCESS_TOKEN);
+        fakeCredential.setExpiresInSeconds(EXPIRATION_SECONDS);
+        CompletableFuture<Secret> future = credentials.getAccessTokenAsync(new TestRequirement());
+        assertEquals(ACCESS_TOKEN, Secret.toString(future.get(10, TimeUnit.SECONDS)));
+
+        // A cached token is returned without waiting.
+        future = credentials.getAccessTokenAsync(new TestRequirement());
+        assertTrue(future.isDone());
+        assertEquals(ACCESS_TOKEN, Secret.toString(future.get()));
+    }
+
+    @Test
+    @WithoutJenkins
+    public void testGetAccessTokenAsyncShared() throws Exception {
+        fakeCredential.setAccessToken(ACCESS_TOKEN);
+        fakeCredential.setExpiresInSeconds(EXPIRATION_SECONDS);
+        CountDownLatch fetching = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger fetches = new AtomicInteger();
+        FakeGoogleCredentials credentials = new FakeGoogleCredentials(PROJECT_ID, fakeCredential) {
+            @Override
+            public GoogleCredential getGoogleCredential(GoogleOAuth2ScopeRequirement requirement)
+                    throws GeneralSecurityException {
+                if (requirement instanceof TestRequirement) {
+                    fetches.incrementAndGet();
+                    fetching.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new GeneralSecurityException(e);
+                    }
+                }
+                return super.getGoogleCredential(requirement);
+            }
+        };
+
+        CompletableFuture<Secret> first = credentials.getAccessTokenAsync(new TestRequirement());
+        assertTrue(fetching.await(10, TimeUnit.SECONDS));
+        CompletableFuture<Secret> second = credentials.getAccessTokenAsync(new TestRequirement());
+
+        // Other scopes do not wait for the fetch in flight.
+        assertEquals(
+                ACCESS_TOKEN,
+                Secret.toString(credentials.getAccessToken(new TestGoogleOAuth2DomainRequirement(OTHER_SCOPE))));
+
+        release.countDown();
+        assertSame(first.get(10, TimeUnit.SECONDS), second.get(10, TimeUnit.SECONDS));
+        assertEquals(1, fetches.get());
+    }
+
+    @Test
+    @WithoutJenkins
+    public void testGetAccessTokenAsyncNoCredential() throws Exception {
+        FakeGoogleCredentials credentials = new FakeGoogleCredentials(PROJECT_ID, null /* credential */);
+
+        try {
+            credentials.getAccessTokenAsync(null).get(10, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(GeneralSecurityException.class));
+        }
+    }
+
     @Test
     @WithoutJenkins
     public void testForRemote() throws Exception {
@@ -175,6 +383,158 @@ public class GoogleRobotCredentialsTest {
         assertSame(remotable, remotable.forRemote(requirement));
     }
 
+    @Test
+    @WithoutJenkins
+    public void testForRemoteCached() throws Exception {
+        FakeTokenClock clock = new FakeTokenClock();
+        FakeGoogleCredentials credentials = new FakeGoogleCredentials(PROJECT_ID, fakeCredential, clock.module());
+
+        fakeCredential.setAccessToken(ACCESS_TOKEN);
+        fakeCredential.setExpiresInSeconds(EXPIRATION_SECONDS);
+
+        GoogleRobotCredentials remotable = credentials.forRemote(new TestRequirement());
+
+        // Same scopes, same snapshot.
+        assertSame(remotable, credentials.forRemote(new TestRequirement()));
+
+        // Different scopes, different snapshot.
+        assertNotSame(remotable, credentials.forRemote(new TestGoogleOAuth2DomainRequirement(OTHER_SCOPE)));
+
+        // Once the snapshot is too close to expiring, a new one is minted.
+        clock.advance(Duration.ofSeconds(EXPIRATION_SECONDS - 60));
+        assertNotSame(remotable, credentials.forRemote(new TestRequirement()));
+    }
+
+    @Test
+    public void testForRemoteShared() throws Exception {
+        fakeCredential.setAccessToken(ACCESS_TOKEN);
+        fakeCredential.setExpiresInSeconds(EXPIRATION_SECONDS);
+        CountDownLatch fetching = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger fetches = new AtomicInteger();
+        FakeGoogleCredentials credentials = new FakeGoogleCredentials(PROJECT_ID, fakeCredential) {
+            @Override
+            public GoogleCredential getGoogleCredential(GoogleOAuth2ScopeRequirement requirement)
+                    throws GeneralSecurityException {
+                fetches.incrementAndGet();
+                fetching.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new GeneralSecurityException(e);
+                }
+                return super.getGoogleCredential(requirement);
+            }
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<GoogleRobotCredentials> first = executor.submit(() -> credentials.forRemote(new TestRequirement()));
+            assertTrue(fetching.await(10, TimeUnit.SECONDS));
+            Future<GoogleRobotCredentials> second = executor.submit(() -> credentials.forRemote(new TestRequirement()));
+            release.countDown();
+
+            // Both callers get the one snapshot, made from a single fetch.
+            assertSame(first.get(10, TimeUnit.SECONDS), second.get(10, TimeUnit.SECONDS));
+            assertEquals(1, fetches.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @WithoutJenkins
+    public void testModulesInterned() throws Exception {
+        assertSame(GoogleRobotCredentialsModule.getDefault(), roundTrip(new GoogleRobotCredentialsModule()));
+        assertSame(
+                GoogleRobotMetadataCredentialsModule.getDefault(),
+                roundTrip(new GoogleRobotMetadataCredentialsModule()));
+
+        // Subclasses may carry state of their own.
+        assertNotSame(GoogleRobotCredentialsModule.getDefault(), roundTrip(new FakeTokenClock().module()));
+    }
+
+    private static GoogleRobotCredentialsModule roundTrip(GoogleRobotCredentialsModule module) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SerializationUtil.serialize(module, out);
+        return SerializationUtil.deserialize(
+                GoogleRobotCredentialsModule.class, new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    /** Refreshes a remotable credential on an agent, returning the fresh token or null if refused. */
+    private static class RefreshOnAgent extends MasterToSlaveCallable<String, RuntimeException> {
+        RefreshOnAgent(GoogleRobotCredentials credentials) {
+            this.credentials = credentials;
+        }
+
+        @Override
+        public String call() {
+            try {
+                Credential credential = credentials.getGoogleCredential(new TestRequirement());
+                return credential.refreshToken() ? credential.getAccessToken() : null;
+            } catch (GeneralSecurityException | IOException e) {
+                return null;
+            }
+        }
+
+        private final GoogleRobotCredentials credentials;
+
+        private static final long serialVersionUID = 1L;
+    }
+
+    @Test
+    public void testForRemoteRefreshedOnAgent() throws Exception {
+        FakeGoogleCredentials credentials = new FakeGoogleCredentials(PROJECT_ID, fakeCredential);
+        SystemCredentialsProvider.getInstance().getCredentials().add(credentials);
+        fakeCredential.setAccessToken(ACCESS_TOKEN);
+        fakeCredential.setExpiresInSeconds(EXPIRATION_SECONDS);
+        GoogleRobotCredentials remotable = credentials.forRemote(new TestRequirement());
+
+        VirtualChannel channel = jenkins.createOnlineSlave().getChannel();
+        // Otherwise the controller hands out the token it still caches.
+        AccessTokenCache.get().clear();
+        fakeCredential.setAccessToken(NEW_ACCESS_TOKEN);
+        assertEquals(NEW_ACCESS_TOKEN, channel.call(new RefreshOnAgent(remotable)));
+    }
+
+    @Test
+    public void testForRemoteRefreshedOnAgentFromUserStore() throws Exception {
+        User user = User.getById("alice", true);
+        FakeGoogleCredentials credentials = new FakeGoogleCredentials(PROJECT_ID, fakeCredential);
+        try (ACLContext ignored = ACL.as(user);
+                BulkChange change = new BulkChange(user)) {
+            // Not saved, the fake credential is not meant to be persisted.
+            for (CredentialsStore store : CredentialsProvider.lookupStores(user)) {
+                if (store.getContext() == user) {
+                    store.addCredentials(Domain.global(), credentials);
+                }
+            }
+        }
+        fakeCredential.setAccessToken(ACCESS_TOKEN);
+        fakeCredential.setExpiresInSeconds(EXPIRATION_SECONDS);
+        GoogleRobotCredentials remotable = credentials.forRemote(new TestRequirement());
+
+        // Not found among the credentials of Jenkins itself, but still in the store it came from.
+        VirtualChannel channel = jenkins.createOnlineSlave().getChannel();
+        AccessTokenCache.get().clear();
+        fakeCredential.setAccessToken(NEW_ACCESS_TOKEN);
+        assertEquals(NEW_ACCESS_TOKEN, channel.call(new RefreshOnAgent(remotable)));
+    }
+
+    @Test
+    public void testForRemoteNotRefreshedOnceDeleted() throws Exception {
+        FakeGoogleCredentials credentials = new FakeGoogleCredentials(PROJECT_ID, fakeCredential);
+        SystemCredentialsProvider.getInstance().getCredentials().add(credentials);
+        fakeCredential.setAccessToken(ACCESS_TOKEN);
+        fakeCredential.setExpiresInSeconds(EXPIRATION_SECONDS);
+        GoogleRobotCredentials remotable = credentials.forRemote(new TestRequirement());
+
+        SystemCredentialsProvider.getInstance().getCredentials().remove(credentials);
+        VirtualChannel channel = jenkins.createOnlineSlave().getChannel();
+        fakeCredential.setAccessToken(NEW_ACCESS_TOKEN);
+        assertNull(channel.call(new RefreshOnAgent(remotable)));
+    }
+
     @Test
     public void testListBoxEmpty() throws Exception {
         ListBoxModel list = GoogleRobotCredentials.getCredentialsListBox(FakeGoogleCredentials.class);
@@ -225,10 +585,12 @@ public class GoogleRobotCredentialsTest {
 
     private static final String NAME = "my credential name";
     private static final String FAKE_SCOPE = "my.fake.scope";
+    private static final String OTHER_SCOPE = "my.other.scope";
     private static final String DISPLAY_NAME = "blah";
     private static final String PROJECT_ID = "foo.com:bar-baz";
     private static final String MIGRATION_PROJECT_ID = "my-google-project";
     private static final String USERNAME = "mattomata";
     private static final String ACCESS_TOKEN = "ThE.ToKeN";
+    private static final String NEW_ACCESS_TOKEN = "NeW.ToKeN";
     private static final long EXPIRATION_SECONDS = 1234;
 }
@@ -138,10 +138,7 @@ public class GoogleRobotMetadataCredentialsTest {
         GoogleRobotMetadataCredentials credentials =
                 new GoogleRobotMetadataCredentials(CredentialsScope.GLOBAL, "", PROJECT_ID, "", module);
 
-        module.stubRequest(
-                "http://metadata/computeMetadata/v1/instance/" + "service-accounts/default/email",
-                STATUS_CODE_OK,
-                USERNAME);
+        module.stubRequest(SERVICE_ACCOUNT_URL, STATUS_CODE_OK, SERVICE_ACCOUNT_JSON);
         assertEquals(USERNAME, credentials.getUsername());
         assertEquals(CredentialsScope.GLOBAL, credentials.getScope());
     }
@@ -153,10 +150,7 @@ public class GoogleRobotMetadataCredentialsTest {
         GoogleRobotMetadataCredentials credentials =
                 new GoogleRobotMetadataCredentials(CredentialsScope.GLOBAL, "", PROJECT_ID, "", module);
 
-        module.stubRequest(
-                "http://metadata/computeMetadata/v1/instance/" + "service-accounts/default/email",
-                STATUS_CODE_NOT_FOUND,
-                USERNAME);
+        module.stubRequest(SERVICE_ACCOUNT_URL, STATUS_CODE_NOT_FOUND, USERNAME);
 
         // Expected to throw
         credentials.getUsername();
@@ -169,13 +163,22 @@ public class GoogleRobotMetadataCredentialsTest {
         GoogleRobotMetadataCredentials credentials =
                 new GoogleRobotMetadataCredentials(CredentialsScope.GLOBAL, "", PROJECT_ID, "", module);
 
-        module.stubRequest(
-                "http://metadata/computeMetadata/v1/instance/" + "service-accounts/default/email", 409, USERNAME);
+        module.stubRequest(SERVICE_ACCOUNT_URL, 409, USERNAME);
 
         // Expected to throw
         credentials.getUsername();
     }
 
+    @Test
+    @WithoutJenkins
+    public void testDefaultReaderShared() throws Exception {
+        GoogleRobotMetadataCredentialsModule module = new GoogleRobotMetadataCredentialsModule();
+        GoogleRobotMetadataCredentialsModule otherModule = new GoogleRobotMetadataCredentialsModule();
+
+        assertSame(module.getMetadataReader(), otherModule.getMetadataReader());
+        assertSame(module.getMetadataCache(), otherModule.getMetadataCache());
+    }
+
     @Test
     public void defaultProjectTest() throws Exception {
         GoogleRobotMetadataCredentials credentials = new GoogleRobotMetadataCredentials(
@@ -226,10 +229,7 @@ public class GoogleRobotMetadataCredentialsTest {
 
         final Module module = (Module) descriptor.getModule();
 
-        module.stubRequest(
-                "http://metadata/computeMetadata/v1/instance/" + "service-accounts/default/scopes",
-                STATUS_CODE_OK,
-                Joiner.on("\n").join(SCOPES));
+        module.stubRequest(SERVICE_ACCOUNT_URL, STATUS_CODE_OK, SERVICE_ACCOUNT_JSON);
         assertEquals(SCOPES, descriptor.defaultScopes());
     }
 
@@ -242,10 +242,7 @@ public class GoogleRobotMetadataCredentialsTest {
 
         final Module module = (Module) descriptor.getModule();
 
-        module.stubRequest(
-                "http://metadata/computeMetadata/v1/instance/" + "service-accounts/default/scopes",
-                STATUS_CODE_NOT_FOUND,
-                Joiner.on("\n").join(SCOPES));
+        module.stubRequest(SERVICE_ACCOUNT_URL, STATUS_CODE_NOT_FOUND, Joiner.on("\n").join(SCOPES));
         assertEquals(0, descriptor.defaultScopes().size());
     }
 
@@ -258,10 +255,7 @@ public class GoogleRobotMetadataCredentialsTest {
 
         final Module module = (Module) descriptor.getModule();
 
-        module.stubRequest(
-                "http://metadata/computeMetadata/v1/instance/" + "service-accounts/default/scopes",
-                409,
-                Joiner.on("\n").join(SCOPES));
+        module.stubRequest(SERVICE_ACCOUNT_URL, 409, Joiner.on("\n").join(SCOPES));
         assertEquals(0, descriptor.defaultScopes().size());
     }
 
@@ -272,10 +266,7 @@ public class GoogleRobotMetadataCredentialsTest {
         SystemCredentialsProvider.getInstance().getCredentials().add(credentials);
         Module module = (Module) credentials.getDescriptor().getModule();
 
-        module.stubRequest(
-                "http://metadata/computeMetadata/v1/instance/" + "service-accounts/default/scopes",
-                STATUS_CODE_OK,
-                "does.not.Matter");
+        module.stubRequest(SERVICE_ACCOUNT_URL, STATUS_CODE_OK, "{\"scopes\":[\"does.not.Matter\"]}");
 
         assertSame(credentials, GoogleRobotCredentials.getById(credentials.getId()));
     }
@@ -309,10 +300,7 @@ public class GoogleRobotMetadataCredentialsTest {
         GoogleRobotMetadataCredentials credentials = new GoogleRobotMetadataCredentials(
                 CredentialsScope.SYSTEM, CREDENTIAL_ID, PROJECT_ID, DESCRIPTION, module);
 
-        module.stubRequest(
-                "http://metadata/computeMetadata/v1/instance/" + "service-accounts/default/email",
-                STATUS_CODE_OK,
-                USERNAME);
+        module.stubRequest(SERVICE_ACCOUNT_URL, STATUS_CODE_OK, SERVICE_ACCOUNT_JSON);
 
         // THEN: resulting credential should have our defined id and description
         assertEquals(CREDENTIAL_ID, credentials.getId());
@@ -327,10 +315,7 @@ public class GoogleRobotMetadataCredentialsTest {
         GoogleRobotMetadataCredentials credentials =
                 new GoogleRobotMetadataCredentials(CredentialsScope.SYSTEM, "", PROJECT_ID, "", module);
 
-        module.stubRequest(
-                "http://metadata/computeMetadata/v1/instance/" + "service-accounts/default/email",
-                STATUS_CODE_OK,
-                USERNAME);
+        module.stubRequest(SERVICE_ACCOUNT_URL, STATUS_CODE_OK, SERVICE_ACCOUNT_JSON);
 
         // THEN: the resulting credential should have SYSTEM scope
         assertEquals(CredentialsScope.SYSTEM, credentials.getScope());
@@ -345,10 +330,7 @@ public class GoogleRobotMetadataCredentialsTest {
         GoogleRobotMetadataCredentials credentials =
                 new GoogleRobotMetadataCredentials(CredentialsScope.GLOBAL, "", PROJECT_ID, "", module);
 
-        module.stubRequest(
-                "http://metadata/computeMetadata/v1/instance/" + "service-accounts/default/email",
-                STATUS_CODE_OK,
-                USERNAME);
+        module.stubRequest(SERVICE_ACCOUNT_URL, STATUS_CODE_OK, SERVICE_ACCOUNT_JSON);
 
         // THEN: the resulting credential should have GLOBAL scope
         assertEquals(CredentialsScope.GLOBAL, credentials.getScope());
@@ -364,4 +346,8 @@ public class GoogleRobotMetadataCredentialsTest {
     private static final String CREDENTIAL_ID = "credential.id";
     private static final String DESCRIPTION = "credential.description";
     private static final List<String> SCOPES = ImmutableList.of("scope1", "scope2", "scope3");
+    private static final String SERVICE_ACCOUNT_URL =
+            "http://metadata/computeMetadata/v1/instance/service-accounts/default/?recursive=true";
+    private static final String SERVICE_ACCOUNT_JSON = "{\"aliases\":[\"default\"],\"email\":\"" + USERNAME
+            + "\",\"scopes\":[\"" + Joiner.on("\",\"").join(SCOPES) + "\"]}";
 }
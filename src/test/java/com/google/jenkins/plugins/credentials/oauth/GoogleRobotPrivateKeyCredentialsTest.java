@@ -211,6 +211,22 @@ public class GoogleRobotPrivateKeyCredentialsTest {
         assertEquals(keyPair.getPrivate(), googleCredential.getServiceAccountPrivateKey());
     }
 
+    @Test
+    public void testUpgradeLegacyCredentialsDeferred() throws Exception {
+        File secretsFile = new File(jenkins.jenkins.getRootDir(), "legacy-secrets.json");
+        GoogleRobotPrivateKeyCredentials legacyCredentials =
+                new GoogleRobotPrivateKeyCredentials(CredentialsScope.GLOBAL, "", PROJECT_ID, "", null, null);
+        setPrivateField(legacyCredentials, "secretsFile", secretsFile.getPath());
+        setPrivateField(legacyCredentials, "p12File", p12KeyPath);
+        GoogleRobotPrivateKeyCredentials upgradedCredentials =
+                (GoogleRobotPrivateKeyCredentials) legacyCredentials.readResolve();
+
+        // Only read on first use, so it need not exist while loading.
+        FileUtils.copyFile(new File(legacyJsonKeyPath), secretsFile);
+        assertEquals(SERVICE_ACCOUNT_EMAIL_ADDRESS, upgradedCredentials.getUsername());
+        assertNotNull(((P12ServiceAccountConfig) upgradedCredentials.getServiceAccountConfig()).getSecretP12Key());
+    }
+
     @Test
     public void testUpgradeLegacyCredentialsWithoutSecretsFile() throws Exception {
         GoogleRobotPrivateKeyCredentials legacyCredentials =
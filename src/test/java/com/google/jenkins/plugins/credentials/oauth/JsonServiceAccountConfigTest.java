@@ -17,6 +17,7 @@ package com.google.jenkins.plugins.credentials.oauth;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.when;
 
 import com.cloudbees.plugins.credentials.SecretBytes;
@@ -25,6 +26,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.security.PrivateKey;
+import jenkins.model.Jenkins;
 import org.apache.commons.fileupload.FileItem;
 import org.apache.commons.io.FileUtils;
 import org.junit.Before;
@@ -121,6 +123,20 @@ public class JsonServiceAccountConfigTest {
         assertEquals(privateKey, jsonServiceAccountConfig.getPrivateKey());
     }
 
+    @Test
+    public void testReplaceSecretJsonKey() throws Exception {
+        String otherEmailAddress = "other@account.com";
+        String otherJsonKeyPath = JsonServiceAccountConfigTestUtil.createTempJsonKeyFile(otherEmailAddress, privateKey);
+        JsonServiceAccountConfig jsonServiceAccountConfig = new JsonServiceAccountConfig();
+        jsonServiceAccountConfig.setSecretJsonKey(
+                SecretBytes.fromBytes(FileUtils.readFileToByteArray(new File(jsonKeyPath))));
+        assertEquals(SERVICE_ACCOUNT_EMAIL_ADDRESS, jsonServiceAccountConfig.getAccountId());
+
+        jsonServiceAccountConfig.setSecretJsonKey(
+                SecretBytes.fromBytes(FileUtils.readFileToByteArray(new File(otherJsonKeyPath))));
+        assertEquals(otherEmailAddress, jsonServiceAccountConfig.getAccountId());
+    }
+
     @Test
     public void testCreateJsonKeyTypeWithEmptyPrevJsonKeyFile() {
         SecretBytes prev = SecretBytes.fromString("");
@@ -141,6 +157,20 @@ public class JsonServiceAccountConfigTest {
         assertNull(jsonServiceAccountConfig.getPrivateKey());
     }
 
+    @Test
+    public void testAccountIdPersisted() throws Exception {
+        JsonServiceAccountConfig jsonServiceAccountConfig = new JsonServiceAccountConfig();
+        jsonServiceAccountConfig.setSecretJsonKey(
+                SecretBytes.fromBytes(FileUtils.readFileToByteArray(new File(jsonKeyPath))));
+
+        String xml = Jenkins.XSTREAM2.toXML(jsonServiceAccountConfig);
+        assertTrue(xml.contains("<accountId>" + SERVICE_ACCOUNT_EMAIL_ADDRESS + "</accountId>"));
+
+        JsonServiceAccountConfig loaded = (JsonServiceAccountConfig) Jenkins.XSTREAM2.fromXML(xml);
+        assertEquals(SERVICE_ACCOUNT_EMAIL_ADDRESS, loaded.getAccountId());
+        assertEquals(privateKey, loaded.getPrivateKey());
+    }
+
     @Test
     public void testSerialization() throws Exception {
         when(mockFileItem.getSize()).thenReturn(1L);
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.jenkins.plugins.credentials.oauth;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.security.KeyPair;
+import java.security.PrivateKey;
+import org.junit.Test;
+
+/** Tests for {@link KeyMaterial}. */
+public class KeyMaterialTest {
+    @Test
+    public void testFromPkcs8() throws Exception {
+        KeyPair keyPair = P12ServiceAccountConfigTestUtil.generateKeyPair();
+        byte[] pkcs8 = keyPair.getPrivate().getEncoded();
+
+        PrivateKey privateKey = KeyMaterial.fromPkcs8(pkcs8).getPrivateKey();
+
+        assertArrayEquals(keyPair.getPrivate().getEncoded(), privateKey.getEncoded());
+        // The input is zeroed once decoded.
+        assertArrayEquals(new byte[pkcs8.length], pkcs8);
+    }
+
+    @Test
+    public void testOf() throws Exception {
+        KeyPair keyPair = P12ServiceAccountConfigTestUtil.generateKeyPair();
+
+        PrivateKey privateKey = KeyMaterial.of(keyPair.getPrivate()).getPrivateKey();
+
+        assertEquals(keyPair.getPrivate().getAlgorithm(), privateKey.getAlgorithm());
+        assertArrayEquals(keyPair.getPrivate().getEncoded(), privateKey.getEncoded());
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.jenkins.plugins.credentials.oauth;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.cloudbees.plugins.credentials.CredentialsScope;
+import com.cloudbees.plugins.credentials.SystemCredentialsProvider;
+import hudson.XmlFile;
+import hudson.model.AdministrativeMonitor;
+import hudson.model.Saveable;
+import hudson.model.listeners.SaveableListener;
+import java.io.File;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.KeyPair;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.TestExtension;
+
+/** Tests for {@link LegacyKeyMigrationMonitor}. */
+public class LegacyKeyMigrationMonitorTest {
+    private static final String SERVICE_ACCOUNT_EMAIL_ADDRESS = "service@account.com";
+    private static final String PROJECT_ID = "foo.com:bar-baz";
+
+    @Rule
+    public JenkinsRule jenkins = new JenkinsRule();
+
+    private static void setPrivateField(GoogleRobotPrivateKeyCredentials credentials, String fieldName, Object value)
+            throws Exception {
+        Field field = GoogleRobotPrivateKeyCredentials.class.getDeclaredField(fieldName);
+        field.setAccessible(true);
+        field.set(credentials, value);
+    }
+
+    @Test
+    public void testMigrate() throws Exception {
+        LegacyKeyMigrationMonitor monitor = AdministrativeMonitor.all().get(LegacyKeyMigrationMonitor.class);
+
+        GoogleRobotPrivateKeyCredentials credentials = newLegacyCredentials();
+        SystemCredentialsProvider.getInstance().getCredentials().add(credentials);
+        assertTrue(credentials.hasUnsavedLegacyKeys());
+        assertTrue(monitor.isActivated());
+
+        monitor.start().get();
+
+        assertFalse(credentials.hasUnsavedLegacyKeys());
+        assertEquals(1, monitor.getProgress().getTotal());
+        assertEquals(1, monitor.getProgress().getMigrated());
+        assertEquals(0, monitor.getProgress().getFailed());
+        String saved = new String(
+                Files.readAllBytes(new File(jenkins.jenkins.getRootDir(), "credentials.xml").toPath()),
+                StandardCharsets.UTF_8);
+        assertTrue(saved.contains("secretP12Key"));
+        assertTrue(saved.contains(SERVICE_ACCOUNT_EMAIL_ADDRESS));
+    }
+
+    @Test
+    public void testMigrateSavesStoreOnce() throws Exception {
+        LegacyKeyMigrationMonitor monitor = AdministrativeMonitor.all().get(LegacyKeyMigrationMonitor.class);
+        for (int i = 0; i < 3; i++) {
+            SystemCredentialsProvider.getInstance().getCredentials().add(newLegacyCredentials());
+        }
+        SaveCounter counter = SaveableListener.all().get(SaveCounter.class);
+
+        monitor.start().get();
+
+        assertEquals(3, monitor.getProgress().getMigrated());
+        assertEquals(1, counter.saves.get());
+    }
+
+    /** Counts the saves of the credentials of Jenkins itself. */
+    @TestExtension("testMigrateSavesStoreOnce")
+    public static class SaveCounter extends SaveableListener {
+        @Override
+        public void onChange(Saveable o, XmlFile file) {
+            if (o instanceof SystemCredentialsProvider) {
+                saves.incrementAndGet();
+            }
+        }
+
+        private final AtomicInteger saves = new AtomicInteger();
+    }
+
+    private static GoogleRobotPrivateKeyCredentials newLegacyCredentials() throws Exception {
+        GoogleRobotPrivateKeyCredentials legacyCredentials =
+                new GoogleRobotPrivateKeyCredentials(CredentialsScope.GLOBAL, "", PROJECT_ID, "", null, null);
+        setPrivateField(
+                legacyCredentials,
+                "secretsFile",
+                LegacyJsonServiceAccountConfigUtil.createTempLegacyJsonKeyFile(SERVICE_ACCOUNT_EMAIL_ADDRESS));
+        KeyPair keyPair = P12ServiceAccountConfigTestUtil.generateKeyPair();
+        setPrivateField(legacyCredentials, "p12File", P12ServiceAccountConfigTestUtil.createTempP12KeyFile(keyPair));
+        return (GoogleRobotPrivateKeyCredentials) legacyCredentials.readResolve();
+    }
+
+    @Test
+    public void testSavedByAnySave() throws Exception {
+        GoogleRobotPrivateKeyCredentials credentials = newLegacyCredentials();
+        SystemCredentialsProvider.getInstance().getCredentials().add(credentials);
+        assertTrue(credentials.hasUnsavedLegacyKeys());
+
+        // Not through the monitor, e.g. because another credential was changed.
+        SystemCredentialsProvider.getInstance().save();
+
+        assertFalse(credentials.hasUnsavedLegacyKeys());
+    }
+
+    @Test
+    public void testUnsavedByIdentity() {
+        List<String> legacy = new ArrayList<>(Collections.singletonList("legacy"));
+        List<String> equal = new ArrayList<>(legacy);
+        LegacyKeyMigration.schedule(legacy, () -> {});
+
+        assertTrue(LegacyKeyMigration.isUnsaved(legacy));
+        assertFalse(LegacyKeyMigration.isUnsaved(equal));
+
+        // Saving an equal object says nothing about this one.
+        LegacyKeyMigration.saved(equal);
+        assertTrue(LegacyKeyMigration.isUnsaved(legacy));
+
+        LegacyKeyMigration.saved(legacy);
+        assertFalse(LegacyKeyMigration.isUnsaved(legacy));
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.jenkins.plugins.credentials.oauth;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.jenkins.plugins.util.ExecutorException;
+import com.google.jenkins.plugins.util.MetadataReader;
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+/** Tests for {@link MetadataCache}. */
+public class MetadataCacheTest {
+    private static final String PATH = "/instance/service-accounts/default/email";
+
+    /** Answers plain reads with a fixed value, and watches with the values queued by the test. */
+    private static class FakeReader implements MetadataReader {
+        FakeReader(MetadataReader.Versioned<String> initial) {
+            this.initial = initial;
+        }
+
+        @Override
+        public boolean hasMetadata() {
+            return true;
+        }
+
+        @Override
+        public String readMetadata(String metadataPath) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Versioned<String> watchMetadata(String metadataPath, String lastEtag)
+                throws IOException, ExecutorException {
+            if (lastEtag == null) {
+                reads.incrementAndGet();
+                return initial;
+            }
+            try {
+                return changes.take();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+        }
+
+        private final MetadataReader.Versioned<String> initial;
+        final AtomicInteger reads = new AtomicInteger();
+        final BlockingQueue<MetadataReader.Versioned<String>> changes = new LinkedBlockingQueue<>();
+    }
+
+    private static void awaitValue(MetadataCache cache, String expected) throws Exception {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (!expected.equals(cache.readMetadata(PATH)) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, cache.readMetadata(PATH));
+    }
+
+    @Test
+    public void testWatched() throws Exception {
+        FakeReader reader = new FakeReader(new MetadataReader.Versioned<>("first", "1"));
+        MetadataCache cache = new MetadataCache(reader);
+
+        assertEquals("first", cache.readMetadata(PATH));
+        assertEquals("first", cache.readMetadata(PATH));
+        assertEquals(1, reader.reads.get());
+        assertTrue(cache.isWatched(PATH));
+
+        reader.changes.add(new MetadataReader.Versioned<>("second", "2"));
+        awaitValue(cache, "second");
+        assertEquals(1, reader.reads.get());
+
+        // Once the reader can no longer watch, every use reads the value again.
+        reader.changes.add(new MetadataReader.Versioned<>("third", null));
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (cache.isWatched(PATH) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertFalse(cache.isWatched(PATH));
+    }
+
+    @Test
+    public void testNotWatchable() throws Exception {
+        FakeReader reader = new FakeReader(new MetadataReader.Versioned<>("value", null));
+        MetadataCache cache = new MetadataCache(reader);
+
+        assertEquals("value", cache.readMetadata(PATH));
+        assertEquals("value", cache.readMetadata(PATH));
+        assertEquals(2, reader.reads.get());
+        assertFalse(cache.isWatched(PATH));
+    }
+}
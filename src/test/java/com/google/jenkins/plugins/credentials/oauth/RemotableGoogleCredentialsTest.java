@@ -16,17 +16,31 @@
 package com.google.jenkins.plugins.credentials.oauth;
 
 import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.cloudbees.plugins.credentials.CredentialsNameProvider;
 import com.cloudbees.plugins.credentials.CredentialsScope;
 import com.google.api.client.auth.oauth2.Credential;
 import com.google.api.client.googleapis.auth.oauth2.GoogleCredential;
+import hudson.remoting.Channel;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.security.GeneralSecurityException;
-import org.joda.time.DateTime;
-import org.joda.time.DateTimeUtils;
+import java.time.Duration;
+import jenkins.model.Jenkins;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
@@ -42,17 +56,18 @@ public class RemotableGoogleCredentialsTest {
 
     private TestGoogleOAuth2DomainRequirement testConsumer;
 
+    private FakeTokenClock clock;
+
     private GoogleRobotCredentialsModule module;
 
     @Before
     public void setUp() throws Exception {
         MockitoAnnotations.initMocks(this);
+        RemoteTokenRefresher.clearForTesting();
 
         // Freeze time
-        DateTime now = new DateTime();
-        DateTimeUtils.setCurrentMillisFixed(now.getMillis());
-
-        this.module = new GoogleRobotCredentialsModule();
+        this.clock = new FakeTokenClock();
+        this.module = clock.module();
 
         this.testConsumer = new TestGoogleOAuth2DomainRequirement(THE_SCOPE);
         this.fakeCredential = new GoogleCredential();
@@ -60,6 +75,8 @@ public class RemotableGoogleCredentialsTest {
         when(mockCredentials.getProjectId()).thenReturn(PROJECT_ID);
         when(mockCredentials.getGoogleCredential(testConsumer)).thenReturn(fakeCredential);
         when(mockCredentials.getUsername()).thenReturn(USERNAME);
+        when(mockCredentials.getModule()).thenReturn(module);
+        when(mockCredentials.getGoogleAccessToken(any(), any())).thenCallRealMethod();
     }
 
     @Test
@@ -97,6 +114,204 @@ public class RemotableGoogleCredentialsTest {
         assertThat(credential.getExpiresInSeconds().doubleValue(), closeTo(EXPIRATION_SECONDS, 2));
     }
 
+    @Test
+    public void testRefreshNearExpiration() throws Exception {
+        fakeCredential.setAccessToken(ACCESS_TOKEN);
+        fakeCredential.setExpiresInSeconds(EXPIRATION_SECONDS);
+
+        GoogleRobotCredentials credentials = new RemotableGoogleCredentials(mockCredentials, testConsumer, module);
+
+        // Move close enough to the expiration for the remote credential to ask for a new token.
+        clock.advance(Duration.ofSeconds(EXPIRATION_SECONDS - 60));
+        fakeCredential.setAccessToken(NEW_ACCESS_TOKEN);
+
+        Credential credential = credentials.getGoogleCredential(testConsumer);
+
+        assertEquals(NEW_ACCESS_TOKEN, credential.getAccessToken());
+        assertThat(credential.getExpiresInSeconds().doubleValue(), closeTo(EXPIRATION_SECONDS, 2));
+    }
+
+    @Test
+    public void testSharedCredential() throws Exception {
+        fakeCredential.setAccessToken(ACCESS_TOKEN);
+        fakeCredential.setExpiresInSeconds(EXPIRATION_SECONDS);
+
+        GoogleRobotCredentials credentials = new RemotableGoogleCredentials(mockCredentials, testConsumer, module);
+        Credential credential = credentials.getGoogleCredential(testConsumer);
+
+        assertSame(credential, credentials.getGoogleCredential(testConsumer));
+
+        // Refreshing the credential itself goes back to the original credential for a new token, once
+        // the controller no longer caches one.
+        AccessTokenCache.get().clear();
+        fakeCredential.setAccessToken(NEW_ACCESS_TOKEN);
+        assertTrue(credential.refreshToken());
+        assertEquals(NEW_ACCESS_TOKEN, credential.getAccessToken());
+        assertSame(credential, credentials.getGoogleCredential(testConsumer));
+        assertEquals(NEW_ACCESS_TOKEN, credential.getAccessToken());
+    }
+
+    @Test
+    public void testRefreshServedFromCache() throws Exception {
+        fakeCredential.setAccessToken(ACCESS_TOKEN);
+        fakeCredential.setExpiresInSeconds(EXPIRATION_SECONDS);
+
+        GoogleRobotCredentials credentials = new RemotableGoogleCredentials(mockCredentials, testConsumer, module);
+        Credential credential = credentials.getGoogleCredential(testConsumer);
+
+        // The controller still caches a token with plenty of time left, so that is handed out again.
+        fakeCredential.setAccessToken(NEW_ACCESS_TOKEN);
+        assertTrue(credential.refreshToken());
+        assertEquals(ACCESS_TOKEN, credential.getAccessToken());
+        verify(mockCredentials, times(1)).getGoogleCredential(testConsumer);
+    }
+
+    @Test
+    public void testFailureCached() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            try {
+                new RemotableGoogleCredentials(mockCredentials, testConsumer, module);
+                fail();
+            } catch (GeneralSecurityException expected) {
+                // The second attempt fails fast.
+            }
+        }
+        verify(mockCredentials, times(1)).getGoogleCredential(testConsumer);
+    }
+
+    @Test
+    public void testSerialization() throws Exception {
+        fakeCredential.setAccessToken(ACCESS_TOKEN);
+        fakeCredential.setExpiresInSeconds(EXPIRATION_SECONDS);
+
+        GoogleRobotCredentials credentials = new RemotableGoogleCredentials(mockCredentials, testConsumer, module);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SerializationUtil.serialize(credentials, out);
+        GoogleRobotCredentials deserialized = SerializationUtil.deserialize(
+                GoogleRobotCredentials.class, new ByteArrayInputStream(out.toByteArray()));
+
+        assertThat(deserialized, instanceOf(RemotableGoogleCredentials.class));
+        assertEquals(credentials.getId(), deserialized.getId());
+        assertEquals(CredentialsScope.GLOBAL, deserialized.getScope());
+        assertEquals(PROJECT_ID, deserialized.getProjectId());
+        assertEquals(USERNAME, deserialized.getUsername());
+
+        Credential credential = deserialized.getGoogleCredential(testConsumer);
+        assertEquals(ACCESS_TOKEN, credential.getAccessToken());
+        assertThat(credential.getExpiresInSeconds().doubleValue(), closeTo(EXPIRATION_SECONDS, 2));
+
+        // The deserialized copy can still refresh its token.
+        AccessTokenCache.get().clear();
+        fakeCredential.setAccessToken(NEW_ACCESS_TOKEN);
+        assertTrue(credential.refreshToken());
+        assertEquals(NEW_ACCESS_TOKEN, deserialized.getGoogleCredential(testConsumer).getAccessToken());
+    }
+
+    @Test
+    public void testSerializationWithoutUsername() throws Exception {
+        fakeCredential.setAccessToken(ACCESS_TOKEN);
+        fakeCredential.setExpiresInSeconds(EXPIRATION_SECONDS);
+        when(mockCredentials.getUsername()).thenReturn(null);
+
+        GoogleRobotCredentials credentials = new RemotableGoogleCredentials(mockCredentials, testConsumer, module);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SerializationUtil.serialize(credentials, out);
+        GoogleRobotCredentials deserialized = SerializationUtil.deserialize(
+                GoogleRobotCredentials.class, new ByteArrayInputStream(out.toByteArray()));
+
+        assertNull(deserialized.getUsername());
+        assertEquals(PROJECT_ID, deserialized.getProjectId());
+        assertEquals(ACCESS_TOKEN, deserialized.getGoogleCredential(testConsumer).getAccessToken());
+    }
+
+    @Test
+    public void testSerializationCarriesLifetime() throws Exception {
+        fakeCredential.setAccessToken(ACCESS_TOKEN);
+        fakeCredential.setExpiresInSeconds(EXPIRATION_SECONDS);
+
+        // The sending side's clock is a day off the receiving side's, yet only the lifetime left counts.
+        FakeTokenClock skewed = new FakeTokenClock();
+        skewed.advance(Duration.ofDays(-1));
+        GoogleRobotCredentials credentials =
+                new RemotableGoogleCredentials(mockCredentials, testConsumer, skewed.module());
+        skewed.advance(Duration.ofSeconds(100));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SerializationUtil.serialize(credentials, out);
+        GoogleRobotCredentials deserialized = SerializationUtil.deserialize(
+                GoogleRobotCredentials.class, new ByteArrayInputStream(out.toByteArray()));
+
+        Credential credential = deserialized.getGoogleCredential(testConsumer);
+        assertEquals(ACCESS_TOKEN, credential.getAccessToken());
+        assertThat(credential.getExpiresInSeconds().doubleValue(), closeTo(EXPIRATION_SECONDS - 100, 2));
+    }
+
+    @Test
+    public void testLegacyForm() throws Exception {
+        // As saved by versions that held the token and its wall clock expiration in fields of their own.
+        String xml = "<com.google.jenkins.plugins.credentials.oauth.RemotableGoogleCredentials>"
+                + "<scope>GLOBAL</scope>"
+                + "<id>" + PROJECT_ID + "</id>"
+                + "<description></description>"
+                + "<module/>"
+                + "<projectId>" + PROJECT_ID + "</projectId>"
+                + "<username>" + USERNAME + "</username>"
+                + "<accessToken>" + ACCESS_TOKEN + "</accessToken>"
+                + "<expiration>" + (System.currentTimeMillis() + EXPIRATION_SECONDS * 1000) + "</expiration>"
+                + "</com.google.jenkins.plugins.credentials.oauth.RemotableGoogleCredentials>";
+
+        GoogleRobotCredentials credentials = (GoogleRobotCredentials) Jenkins.XSTREAM2.fromXML(xml);
+
+        assertEquals(PROJECT_ID, credentials.getId());
+        assertEquals(USERNAME, credentials.getUsername());
+        Credential credential = credentials.getGoogleCredential(testConsumer);
+        assertEquals(ACCESS_TOKEN, credential.getAccessToken());
+        assertThat(credential.getExpiresInSeconds().doubleValue(), closeTo(EXPIRATION_SECONDS, 2));
+    }
+
+    @Test
+    public void testLegacyFormWithoutToken() throws Exception {
+        String xml = "<com.google.jenkins.plugins.credentials.oauth.RemotableGoogleCredentials>"
+                + "<projectId>" + PROJECT_ID + "</projectId>"
+                + "<username>" + USERNAME + "</username>"
+                + "</com.google.jenkins.plugins.credentials.oauth.RemotableGoogleCredentials>";
+
+        GoogleRobotCredentials credentials = (GoogleRobotCredentials) Jenkins.XSTREAM2.fromXML(xml);
+
+        // Treated as expired, rather than failing on first use.
+        Credential credential = credentials.getGoogleCredential(testConsumer);
+        assertTrue(credential.getExpiresInSeconds() <= 0);
+    }
+
+    @Test
+    public void testRefreshHandleBoundToChannel() throws Exception {
+        String handle = RemoteTokenRefresher.register(mockCredentials, testConsumer, clock);
+        Channel channel = mock(Channel.class);
+        String bound = RemoteTokenRefresher.bind(handle, channel);
+        assertNotEquals(handle, bound);
+        assertEquals(bound, RemoteTokenRefresher.bind(handle, channel));
+
+        // Neither works over anything but the channel it is meant for.
+        assertRefused(bound, null);
+        assertRefused(handle, channel);
+
+        // Gone once the channel closed.
+        RemoteTokenRefresher.forget(channel);
+        assertRefused(bound, channel);
+    }
+
+    private static void assertRefused(String handle, Channel channel) {
+        try {
+            RemoteTokenRefresher.fetch(handle, channel);
+            fail();
+        } catch (IOException expected) {
+            assertEquals(Messages.RemotableGoogleCredentials_UnknownRefreshHandle(), expected.getMessage());
+        }
+    }
+
+    @Test
     public void testName() throws Exception {
         fakeCredential.setAccessToken(ACCESS_TOKEN);
         fakeCredential.setExpiresInSeconds(EXPIRATION_SECONDS);
@@ -124,4 +339,5 @@ public class RemotableGoogleCredentialsTest {
     private static final String THE_SCOPE = "my.scope";
     private static final String BAD_SCOPE = "NOT.my.scope";
     private static final String ACCESS_TOKEN = "ThE.ToKeN";
+    private static final String NEW_ACCESS_TOKEN = "NeW.ToKeN";
 }
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.jenkins.plugins.credentials.oauth;
+
+import static org.hamcrest.Matchers.contains;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.ImmutableList;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+/** Tests for {@link ScopeSet}. */
+public class ScopeSetTest {
+    @Test
+    public void testCanonicalOrderAndDuplicates() {
+        ScopeSet first = ScopeSet.of(ImmutableList.of(SCOPE_B, SCOPE_A, SCOPE_B));
+        ScopeSet second = ScopeSet.of(Arrays.asList(" " + SCOPE_A, SCOPE_B, "", null));
+
+        assertEquals(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+        assertEquals(2, first.size());
+        assertThat(first, contains(SCOPE_A, SCOPE_B));
+        assertEquals(SCOPE_A + " " + SCOPE_B, first.toString());
+    }
+
+    @Test
+    public void testEmpty() {
+        assertTrue(ScopeSet.of((Iterable<String>) null).isEmpty());
+        assertSame(ScopeSet.of(ImmutableList.<String>of()), ScopeSet.of(Arrays.asList("", " ")));
+    }
+
+    @Test
+    public void testContainsAll() {
+        ScopeSet all = ScopeSet.of(ImmutableList.of(SCOPE_A, SCOPE_B, SCOPE_C));
+        ScopeSet some = ScopeSet.of(ImmutableList.of(SCOPE_C, SCOPE_A));
+
+        assertTrue(all.containsAll(some));
+        assertFalse(some.containsAll(all));
+        assertTrue(some.containsAll(ScopeSet.of(ImmutableList.<String>of())));
+    }
+
+    @Test
+    public void testUnion() {
+        ScopeSet ab = ScopeSet.of(ImmutableList.of(SCOPE_A, SCOPE_B));
+        ScopeSet bc = ScopeSet.of(ImmutableList.of(SCOPE_B, SCOPE_C));
+        ScopeSet a = ScopeSet.of(ImmutableList.of(SCOPE_A));
+
+        assertEquals(ScopeSet.of(ImmutableList.of(SCOPE_A, SCOPE_B, SCOPE_C)), ab.union(bc));
+        assertSame(ab, ab.union(a));
+        assertSame(ab, a.union(ab));
+        assertNotEquals(ab, bc);
+    }
+
+    @Test
+    public void testRequirement() {
+        GoogleOAuth2ScopeRequirement requirement = new TestGoogleOAuth2DomainRequirement(SCOPE_A);
+
+        assertEquals(ScopeSet.of(ImmutableList.of(SCOPE_A)), requirement.getScopeSet());
+        assertEquals(requirement.getScopeSet(), ScopeSet.of(requirement));
+    }
+
+    @Test
+    public void testRequirementComputedOnce() {
+        GoogleOAuth2ScopeRequirement requirement = new TestGoogleOAuth2DomainRequirement(SCOPE_A);
+
+        assertSame(requirement.getScopeSet(), requirement.getScopeSet());
+        assertSame(requirement.getScopeSet(), ScopeSet.of(requirement));
+    }
+
+    @Test
+    public void testRequirementScopesChange() {
+        List<String> scopes = new ArrayList<>(Collections.singletonList(SCOPE_A));
+        GoogleOAuth2ScopeRequirement requirement = new GoogleOAuth2ScopeRequirement() {
+            @Override
+            public Collection<String> getScopes() {
+                return scopes;
+            }
+        };
+        assertEquals(ScopeSet.of(ImmutableList.of(SCOPE_A)), requirement.getScopeSet());
+
+        // Not fixed, so the change is seen.
+        scopes.add(SCOPE_B);
+        assertEquals(ScopeSet.of(ImmutableList.of(SCOPE_A, SCOPE_B)), requirement.getScopeSet());
+    }
+
+    @Test
+    public void testSerialization() throws Exception {
+        ScopeSet scopes = ScopeSet.of(ImmutableList.of(SCOPE_B, SCOPE_A));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SerializationUtil.serialize(scopes, out);
+        ScopeSet deserialized =
+                SerializationUtil.deserialize(ScopeSet.class, new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(scopes, deserialized);
+        assertEquals(scopes.hashCode(), deserialized.hashCode());
+    }
+
+    private static final String SCOPE_A = "https://www.googleapis.com/auth/a";
+    private static final String SCOPE_B = "https://www.googleapis.com/auth/b";
+    private static final String SCOPE_C = "https://www.googleapis.com/auth/c";
+}
@@ -31,5 +31,10 @@ public class TestGoogleOAuth2DomainRequirement extends GoogleOAuth2ScopeRequirem
         return Collections.singletonList(scope);
     }
 
+    @Override
+    protected boolean hasFixedScopes() {
+        return true;
+    }
+
     private final String scope;
 }
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.jenkins.plugins.credentials.oauth;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import hudson.util.Secret;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+/** Tests for {@link TokenClock}. */
+public class TokenClockTest {
+    private static final ScopeSet SCOPES = ScopeSet.of(new TestGoogleOAuth2DomainRequirement("scope"));
+
+    @Test
+    public void testSystem() {
+        TokenClock clock = TokenClock.system();
+        assertSame(clock, new GoogleRobotCredentialsModule().getTokenClock());
+
+        // Anchored to the wall clock, and never going backwards.
+        long first = clock.currentTimeMillis();
+        assertTrue(Math.abs(first - System.currentTimeMillis()) < TimeUnit.MINUTES.toMillis(1));
+        for (int i = 0; i < 1000; i++) {
+            long next = clock.currentTimeMillis();
+            assertTrue(next >= first);
+            first = next;
+        }
+    }
+
+    @Test
+    public void testLifetime() {
+        FakeTokenClock clock = new FakeTokenClock();
+        long expiration = clock.expirationIn(1000);
+        assertEquals(1000, clock.lifetimeMillis(expiration));
+
+        clock.advance(Duration.ofMillis(400));
+        assertEquals(600, clock.lifetimeMillis(expiration));
+    }
+
+    @Test
+    public void testAccessTokenExpiresOnItsClock() {
+        FakeTokenClock clock = new FakeTokenClock();
+        AccessToken token = new AccessToken(
+                Secret.fromString("token"), clock.expirationIn(TimeUnit.MINUTES.toMillis(10)), SCOPES, clock);
+        assertFalse(token.expiresWithin(Duration.ofMinutes(5)));
+
+        clock.advance(Duration.ofMinutes(6));
+        assertTrue(token.expiresWithin(Duration.ofMinutes(5)));
+    }
+
+    @Test
+    public void testAccessTokenSerializedAsLifetime() throws Exception {
+        FakeTokenClock clock = new FakeTokenClock();
+        // Far behind the system clock, as if the other side's wall clock was off.
+        clock.advance(Duration.ofDays(-1));
+        AccessToken token = new AccessToken(
+                Secret.fromString("token"), clock.expirationIn(TimeUnit.MINUTES.toMillis(10)), SCOPES, clock);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SerializationUtil.serialize(token, out);
+        AccessToken deserialized =
+                SerializationUtil.deserialize(AccessToken.class, new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals("token", deserialized.getValue().getPlainText());
+        assertEquals(SCOPES, deserialized.getScopes());
+        assertFalse(deserialized.expiresWithin(Duration.ofMinutes(9)));
+        assertTrue(deserialized.expiresWithin(Duration.ofMinutes(11)));
+    }
+}
@@ -26,10 +26,18 @@ import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.http.HttpRequest;
 import com.google.api.client.testing.http.MockHttpTransport;
 import com.google.api.client.testing.http.MockLowLevelHttpRequest;
 import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import org.apache.commons.io.IOUtils;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.MockitoAnnotations;
@@ -127,7 +135,85 @@ public class MetadataReaderTest {
         }
     }
 
+    @Test
+    public void testWatchMetadata() throws Exception {
+        request.setResponse(new MockLowLevelHttpResponse()
+                .setStatusCode(STATUS_CODE_OK)
+                .setContent(MY_VALUE)
+                .addHeader("ETag", MY_NEW_ETAG));
+        String url = METADATA_ENDPOINT + MY_KEY + "?wait_for_change=true&last_etag=" + MY_ETAG + "&timeout_sec=300";
+        doReturn(request).when(transport).buildRequest("GET", url);
+
+        MetadataReader.Versioned<String> value = underTest.watchMetadata(MY_KEY, MY_ETAG);
+
+        assertEquals(MY_VALUE, value.getValue());
+        assertEquals(MY_NEW_ETAG, value.getEtag());
+        verify(transport).buildRequest("GET", url);
+        assertEquals("Google", getOnlyElement(request.getHeaderValues("Metadata-Flavor")));
+    }
+
+    @Test
+    public void testWatchMetadataWithoutEtag() throws Exception {
+        request.setResponse(new MockLowLevelHttpResponse()
+                .setStatusCode(STATUS_CODE_OK)
+                .setContent(MY_VALUE)
+                .addHeader("ETag", MY_ETAG));
+        doReturn(request).when(transport).buildRequest("GET", METADATA_ENDPOINT + MY_KEY);
+
+        MetadataReader.Versioned<String> value = underTest.watchMetadata(MY_KEY, null);
+
+        assertEquals(MY_VALUE, value.getValue());
+        assertEquals(MY_ETAG, value.getEtag());
+        verifyRequest(MY_KEY);
+    }
+
+    @Test
+    public void testReadMetadataTree() throws Exception {
+        String url = METADATA_ENDPOINT + MY_DIRECTORY + "?recursive=true";
+        stubRequest(url, STATUS_CODE_OK, "{\"email\":\"" + MY_VALUE + "\",\"scopes\":[\"a\",\"b\"]}");
+
+        Map<String, Object> tree = underTest.readMetadataTree(MY_DIRECTORY);
+
+        assertEquals(MY_VALUE, tree.get("email"));
+        assertEquals(ImmutableList.of("a", "b"), tree.get("scopes"));
+        verify(transport).buildRequest("GET", url);
+        verify(request).execute();
+    }
+
+    @Test
+    public void testOpenMetadata() throws Exception {
+        stubRequest(METADATA_ENDPOINT + MY_KEY, STATUS_CODE_OK, MY_VALUE);
+
+        try (InputStream content = underTest.openMetadata(MY_KEY)) {
+            assertEquals(MY_VALUE, IOUtils.toString(content, StandardCharsets.UTF_8));
+        }
+        verifyRequest(MY_KEY);
+    }
+
+    @Test(expected = IOException.class)
+    public void testReadTooLargeMetadata() throws Exception {
+        stubRequest(
+                METADATA_ENDPOINT + MY_KEY,
+                STATUS_CODE_OK,
+                Strings.repeat("x", MetadataReader.Default.MAX_CONTENT_BYTES + 1));
+
+        underTest.readMetadata(MY_KEY);
+    }
+
+    @Test
+    public void testInitialize() throws Exception {
+        HttpRequest initialized = new MockHttpTransport()
+                .createRequestFactory(MetadataReader.Default::initialize)
+                .buildGetRequest(new GenericUrl(METADATA_ENDPOINT));
+
+        assertEquals(MetadataReader.Default.CONNECT_TIMEOUT_MILLIS, initialized.getConnectTimeout());
+        assertEquals(MetadataReader.Default.READ_TIMEOUT_MILLIS, initialized.getReadTimeout());
+    }
+
     private static String METADATA_ENDPOINT = "http://metadata/computeMetadata/v1";
     private static String MY_KEY = "/my/metadata/path";
+    private static String MY_DIRECTORY = "/my/metadata/";
     private static String MY_VALUE = "RaNdOm value";
+    private static String MY_ETAG = "0123456789abcdef";
+    private static String MY_NEW_ETAG = "fedcba9876543210";
 }